@@ -7,8 +7,6 @@ import org.webserver.constant.ServerConfig;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Properties;
@@ -35,7 +33,7 @@ public class BootStrap {
 
     private static void initConfig() throws IOException {
         Properties configs = new Properties();
-        if (Files.exists(Path.of(BootStrap.class.getResource("/").toString().substring(6) + "/server-config.properties"))) {
+        if (BootStrap.class.getResource("/server-config.properties") != null) {
             configs.load(BootStrap.class.getResourceAsStream("/server-config.properties"));
         } else {
             configs.load(BootStrap.class.getResourceAsStream("/default-server-config.properties"));
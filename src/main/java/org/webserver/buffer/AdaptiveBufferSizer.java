@@ -0,0 +1,57 @@
+package org.webserver.buffer;
+
+/**
+ * 根据最近几次读取的数据量自适应调整读缓冲区的大小（参考 Netty 的 AdaptiveRecvByteBufAllocator）：
+ * 一次读满缓冲区时立即扩大两档，连续两次读取的数据量都不超过小一档的容量时缩小一档。
+ * 每个连接持有一个实例，非线程安全。
+ */
+public class AdaptiveBufferSizer {
+    /** 扩大时跨越的档数 */
+    private static final int INDEX_INCREMENT = 2;
+    /** 缩小时跨越的档数 */
+    private static final int INDEX_DECREMENT = 1;
+    /** 可选的缓冲区大小，与 BufferPool 的规格一致 */
+    private static final int[] SIZE_TABLE;
+    /** 初始大小 */
+    private static final int INITIAL_SIZE = 2048;
+
+    static {
+        int count = Integer.numberOfTrailingZeros(BufferPool.MAX_CAPACITY)
+                - Integer.numberOfTrailingZeros(BufferPool.MIN_CAPACITY) + 1;
+        SIZE_TABLE = new int[count];
+        for (int i = 0; i < count; i++) {
+            SIZE_TABLE[i] = BufferPool.MIN_CAPACITY << i;
+        }
+    }
+
+    private int index;
+    private boolean decreaseNow;
+
+    public AdaptiveBufferSizer() {
+        this.index = Integer.numberOfTrailingZeros(INITIAL_SIZE) - Integer.numberOfTrailingZeros(BufferPool.MIN_CAPACITY);
+    }
+
+    /**
+     * 下一次读取应使用的缓冲区大小
+     */
+    public int nextSize() {
+        return SIZE_TABLE[index];
+    }
+
+    /**
+     * 记录一次读取的字节数，据此调整下一次的缓冲区大小
+     */
+    public void record(int bytesRead) {
+        if (bytesRead <= SIZE_TABLE[Math.max(0, index - INDEX_DECREMENT)]) {
+            if (decreaseNow) {
+                index = Math.max(0, index - INDEX_DECREMENT);
+                decreaseNow = false;
+            } else {
+                decreaseNow = true;
+            }
+        } else if (bytesRead >= SIZE_TABLE[index]) {
+            index = Math.min(SIZE_TABLE.length - 1, index + INDEX_INCREMENT);
+            decreaseNow = false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.webserver.buffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 写入从 BufferPool 借来的一组直接缓冲区的输出流，容量不够时再借一个更大的缓冲区接在后面，
+ * 避免 ByteArrayOutputStream 扩容以及 toByteArray 时的拷贝。
+ * 用完后必须调用 release 归还缓冲区。
+ */
+public class BufferOutputStream extends OutputStream {
+    private final BufferPool pool;
+    private final List<ByteBuffer> buffers = new ArrayList<>(2);
+    /** 当前正在写入的缓冲区（写模式） */
+    private ByteBuffer current;
+    /** 已写入的字节数 */
+    private long size;
+
+    public BufferOutputStream(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureWritable();
+        current.put((byte) b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            ensureWritable();
+            int n = Math.min(len, current.remaining());
+            current.put(b, off, n);
+            off += n;
+            len -= n;
+            size += n;
+        }
+    }
+
+    /**
+     * 从 channel 中读取 count 个字节写入，直接读入缓冲区，不经过堆内存
+     */
+    public void transferFrom(ReadableByteChannel channel, long count) throws IOException {
+        while (count > 0) {
+            ensureWritable();
+            int limit = current.limit();
+            if (current.remaining() > count) {
+                current.limit(current.position() + (int) count);
+            }
+            int n = channel.read(current);
+            current.limit(limit);
+            if (n < 0) {
+                throw new IOException("数据长度不足");
+            }
+            count -= n;
+            size += n;
+        }
+    }
+
+    private void ensureWritable() {
+        if (current != null && current.hasRemaining()) {
+            return;
+        }
+        // 新借的缓冲区不小于已写入的数据量，缓冲区个数按对数增长
+        current = pool.acquire((int) Math.min(Math.max(size, BufferPool.MIN_CAPACITY), BufferPool.MAX_CAPACITY));
+        buffers.add(current);
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 以读模式返回已写入的数据，不拷贝，返回的缓冲区在 release 之前有效
+     */
+    public ByteBuffer[] toBuffers() {
+        ByteBuffer[] result = new ByteBuffer[buffers.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buffers.get(i).duplicate().flip();
+        }
+        return result;
+    }
+
+    /**
+     * 丢弃已写入的数据
+     */
+    public void reset() {
+        release();
+    }
+
+    /**
+     * 归还所有缓冲区
+     */
+    public void release() {
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+        buffers.clear();
+        current = null;
+        size = 0;
+    }
+
+    /**
+     * 关闭无效果，缓冲区需要调用 release 归还
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,178 @@
+package org.webserver.buffer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 直接缓冲区（DirectByteBuffer）池，用于连接的读写，减少 GC 压力以及堆内存到本地内存的拷贝。
+ *
+ * 缓冲区按容量分为若干规格（MIN_CAPACITY ~ MAX_CAPACITY 之间 2 的幂），每个线程持有一份本地缓存（slab），
+ * 本地缓存满了之后放回全局共享池，借出时依次从本地缓存、全局共享池获取，都没有时才分配新的缓冲区。
+ * 超过 MAX_CAPACITY 的缓冲区不做池化。
+ * 虚拟线程（每个请求一个，用完即弃）不使用本地缓存，直接从全局共享池借出和归还，否则归还的缓冲区随线程一起丢失。
+ */
+public class BufferPool {
+    /** 最小规格 */
+    public static final int MIN_CAPACITY = 512;
+    /** 最大规格 */
+    public static final int MAX_CAPACITY = 64 * 1024;
+    /** 每个线程的本地缓存中，每种规格最多缓存的个数 */
+    private static final int THREAD_LOCAL_CACHE_SIZE = 16;
+    /** 全局共享池中，每种规格最多缓存的个数 */
+    private static final int SHARED_CACHE_SIZE = 256;
+
+    private static final int SIZE_CLASS_COUNT =
+            Integer.numberOfTrailingZeros(MAX_CAPACITY) - Integer.numberOfTrailingZeros(MIN_CAPACITY) + 1;
+
+    private static final BufferPool SHARED = new BufferPool();
+
+    /** Thread#isVirtual（JDK 21），以 JDK 11 为编译目标，通过反射取得，不支持时为 null */
+    private static final MethodHandle IS_VIRTUAL = isVirtualHandle();
+
+    /** 全局共享池 */
+    private final Queue<ByteBuffer>[] sharedCaches;
+    private final AtomicInteger[] sharedCacheSizes;
+    /** 线程本地缓存 */
+    private final ThreadLocal<ArrayDeque<ByteBuffer>[]> threadLocalCaches;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BufferPool() {
+        this.sharedCaches = new Queue[SIZE_CLASS_COUNT];
+        this.sharedCacheSizes = new AtomicInteger[SIZE_CLASS_COUNT];
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            sharedCaches[i] = new ConcurrentLinkedQueue<>();
+            sharedCacheSizes[i] = new AtomicInteger();
+        }
+        this.threadLocalCaches = ThreadLocal.withInitial(() -> {
+            ArrayDeque<ByteBuffer>[] caches = new ArrayDeque[SIZE_CLASS_COUNT];
+            for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+                caches[i] = new ArrayDeque<>(THREAD_LOCAL_CACHE_SIZE);
+            }
+            return caches;
+        });
+    }
+
+    /**
+     * 全局共享的缓冲区池
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 借出一个容量不小于 capacity 的缓冲区（写模式，position 为 0，limit 为容量）
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity > MAX_CAPACITY) {
+            missCount.increment();
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        int index = sizeClassIndex(capacity);
+        ArrayDeque<ByteBuffer>[] locals = localCaches();
+        ByteBuffer buffer = locals == null ? null : locals[index].pollLast();
+        if (buffer == null) {
+            buffer = sharedCaches[index].poll();
+            if (buffer != null) {
+                sharedCacheSizes[index].decrementAndGet();
+            }
+        }
+        if (buffer == null) {
+            missCount.increment();
+            return ByteBuffer.allocateDirect(MIN_CAPACITY << index);
+        }
+        hitCount.increment();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，归还后调用者不能再使用该缓冲区
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        // 不是由池分配的缓冲区直接丢弃
+        if (!buffer.isDirect() || capacity > MAX_CAPACITY || capacity < MIN_CAPACITY || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        buffer.clear();
+        int index = sizeClassIndex(capacity);
+        ArrayDeque<ByteBuffer>[] locals = localCaches();
+        if (locals != null && locals[index].size() < THREAD_LOCAL_CACHE_SIZE) {
+            locals[index].offerLast(buffer);
+        } else if (sharedCacheSizes[index].incrementAndGet() <= SHARED_CACHE_SIZE) {
+            sharedCaches[index].offer(buffer);
+        } else {
+            sharedCacheSizes[index].decrementAndGet();
+        }
+    }
+
+    /**
+     * 当前线程的本地缓存，虚拟线程返回 null
+     */
+    private ArrayDeque<ByteBuffer>[] localCaches() {
+        return isVirtualThread() ? null : threadLocalCaches.get();
+    }
+
+    static boolean isVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle isVirtualHandle() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) { // JDK 21 以下没有虚拟线程
+            return null;
+        }
+    }
+
+    /**
+     * 容量不小于 capacity 的最小规格的下标
+     */
+    private static int sizeClassIndex(int capacity) {
+        if (capacity <= MIN_CAPACITY) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    }
+
+    /**
+     * 从池中借到缓冲区的次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 池中没有可用的缓冲区，新分配缓冲区的次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 全局共享池中缓存的缓冲区个数（不包括线程本地缓存）
+     */
+    public int getSharedCacheCount() {
+        int count = 0;
+        for (AtomicInteger size : sharedCacheSizes) {
+            count += size.get();
+        }
+        return count;
+    }
+}
@@ -1,6 +1,7 @@
 package org.webserver.connector;
 
 import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.logging.Logger;
 
@@ -10,16 +11,19 @@ import java.util.logging.Logger;
 public class Acceptor implements Runnable {
     private final static Logger logger = Logger.getLogger(Acceptor.class.getPackageName());
     private Server server;
+    /** 阻塞模式的服务器Socket，可能与其他 Acceptor 共享 */
+    private ServerSocketChannel serverChannel;
 
-    Acceptor(Server server) {
+    Acceptor(Server server, ServerSocketChannel serverChannel) {
         this.server = server;
+        this.serverChannel = serverChannel;
     }
 
     @Override
     public void run() {
         while (server.isRunning()) {
             try {
-                SocketChannel client = server.accept(); // ServerSocketChannel处于阻塞模式下，不会返回null，无需判断
+                SocketChannel client = serverChannel.accept(); // ServerSocketChannel处于阻塞模式下，不会返回null，无需判断
                 client.configureBlocking(false); // 将client设为非阻塞模式，注册到轮询线程
                 logger.info(String.format("%s 接收到新的连接请求 %s",
                         Thread.currentThread().getName(), client.getRemoteAddress()));
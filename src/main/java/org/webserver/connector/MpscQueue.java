@@ -0,0 +1,93 @@
+package org.webserver.connector;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的多生产者单消费者队列（Dmitry Vyukov 的 MPSC 链表队列），用于 Poller 的事件队列。
+ *
+ * 生产者（Acceptor、工作线程）入队只需一次 getAndSet，不需要 CAS 重试；
+ * 只有一个消费者（轮询线程）出队，出队不需要原子操作。
+ * 队列长度由入队、出队计数相减得到，O(1)，统计时使用，可能不是精确值。
+ */
+class MpscQueue<E> {
+    private static final class Node<E> {
+        private E value;
+        private volatile Node<E> next;
+
+        Node(E value) {
+            this.value = value;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+    /** 最后入队的节点，生产者竞争 */
+    private final AtomicReference<Node<E>> tail;
+    /** 哨兵节点，它的 next 为队首元素，只由消费者访问 */
+    private Node<E> head;
+
+    private final LongAdder offerCount = new LongAdder();
+    /** 只由消费者修改 */
+    private volatile long pollCount;
+
+    MpscQueue() {
+        Node<E> stub = new Node<>(null);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+    }
+
+    /**
+     * 入队，可由多个线程同时调用
+     */
+    void offer(E value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        Node<E> node = new Node<>(value);
+        Node<E> prev = tail.getAndSet(node);
+        // getAndSet 与设置 next 之间，消费者暂时看不到该节点及之后入队的节点，poll 会返回 null，下次再取
+        NEXT.lazySet(prev, node);
+        offerCount.increment();
+    }
+
+    /**
+     * 出队，只能由消费者线程调用
+     * @return 队首元素，队列为空（或队首元素还没有完全入队）时返回 null
+     */
+    E poll() {
+        Node<E> next = head.next;
+        if (next == null) {
+            return null;
+        }
+        E value = next.value;
+        next.value = null; // 成为新的哨兵节点
+        head = next;
+        pollCount++;
+        return value;
+    }
+
+    /**
+     * 队列是否为空，只能由消费者线程调用
+     */
+    boolean isEmpty() {
+        return head.next == null;
+    }
+
+    /**
+     * 队列中的元素个数（近似值）
+     */
+    int size() {
+        return (int) Math.max(0, offerCount.sum() - pollCount);
+    }
+
+    /**
+     * 累计入队的元素个数
+     */
+    long getOfferCount() {
+        return offerCount.sum();
+    }
+}
@@ -0,0 +1,99 @@
+package org.webserver.connector;
+
+import org.webserver.http.response.FileRegion;
+import org.webserver.http.response.HttpResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.List;
+
+/**
+ * 连接的写队列中的一项：一个响应的数据，可能需要多次写入才能写完
+ */
+class OutboundEntry {
+    private final ByteBuffer[] buffers;
+    /** 第一个还有数据未写出的缓冲区的下标 */
+    private int bufferIndex;
+    /** 在 buffers 之后发送的文件内容 */
+    private final List<FileRegion> fileRegions;
+    /** 正在发送的文件内容的下标 */
+    private int regionIndex;
+    /** 写完或连接关闭时释放资源，如归还缓冲区、关闭文件 */
+    private final Runnable releaser;
+
+    OutboundEntry(ByteBuffer[] buffers, Runnable releaser) {
+        this(buffers, List.of(), releaser);
+    }
+
+    OutboundEntry(ByteBuffer[] buffers, List<FileRegion> fileRegions, Runnable releaser) {
+        this.buffers = buffers;
+        this.fileRegions = fileRegions;
+        this.releaser = releaser;
+    }
+
+    /**
+     * 响应头和响应体，文件内容通过 FileChannel.transferTo 发送
+     */
+    static OutboundEntry of(HttpResponse response) {
+        return new OutboundEntry(response.getResponseData(), response.getFileRegions(), response::release);
+    }
+
+    /**
+     * 尽可能多地写入（非阻塞）：先写缓冲区中的数据，写完后再依次发送文件内容
+     * @return 写入的字节数
+     */
+    long writeTo(GatheringByteChannel channel) throws IOException {
+        long written = 0;
+        if (!buffersDone()) {
+            written += channel.write(buffers, bufferIndex, buffers.length - bufferIndex);
+            if (!buffersDone()) { // 发送缓冲区已满
+                return written;
+            }
+        }
+        while (regionIndex < fileRegions.size()) {
+            FileRegion region = fileRegions.get(regionIndex);
+            written += region.transferTo(channel);
+            if (!region.isDone()) {
+                return written;
+            }
+            regionIndex++;
+        }
+        return written;
+    }
+
+    /**
+     * 缓冲区是否都已写完：跳过已写完的缓冲区，不能只看最后一个（可能是空的，如空文件的响应体）
+     */
+    private boolean buffersDone() {
+        while (bufferIndex < buffers.length && !buffers[bufferIndex].hasRemaining()) {
+            bufferIndex++;
+        }
+        return bufferIndex == buffers.length;
+    }
+
+    /**
+     * 是否已全部写完
+     */
+    boolean isDone() {
+        return buffersDone() && regionIndex >= fileRegions.size();
+    }
+
+    /**
+     * 还未写出的字节数
+     */
+    long remaining() {
+        long remaining = 0;
+        for (int i = bufferIndex; i < buffers.length; i++) {
+            remaining += buffers[i].remaining();
+        }
+        for (int i = regionIndex; i < fileRegions.size(); i++) {
+            remaining += fileRegions.get(i).length();
+        }
+        return remaining;
+    }
+
+    void release() {
+        releaser.run();
+    }
+}
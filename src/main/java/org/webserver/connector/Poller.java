@@ -1,42 +1,92 @@
 package org.webserver.connector;
 
+import org.webserver.constant.HttpConstant;
 import org.webserver.constant.ServerConfig;
+import org.webserver.exception.HttpRequestParseException;
+import org.webserver.http.request.HttpRequest;
+import org.webserver.http.response.HttpResponse;
+import org.webserver.http.response.HttpStatus;
+import org.webserver.util.ErrorResponseUtil;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.channels.*;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
 /**
  * 轮询客户端连接
  */
 public class Poller implements Runnable {
+    /** 连接空闲（两次请求之间）的超时时间 */
     private final long expiryTime = Long.parseLong(System.getProperty(ServerConfig.CONNECTION_EXPIRY_TIME));
+    /** 读取请求行和请求头的超时时间，从读到请求的第一个字节开始计时，防止客户端缓慢发送请求头长期占用连接 */
+    private final long headerReadTimeout = Long.getLong(ServerConfig.HEADER_READ_TIMEOUT, 10000);
     private final static Logger logger = Logger.getLogger(Poller.class.getPackageName());
+    /** 时间轮每格的时长（毫秒），即超时检测的精度 */
+    private final static long TIMEOUT_TICK_DURATION = 200;
+    /** 时间轮的格数 */
+    private final static int TIMEOUT_WHEEL_SIZE = 512;
+    /** 轮询线程接收连接时，每次最多接收的连接数，避免连接风暴时其他连接的读写得不到处理 */
+    private final static int MAX_ACCEPTS_PER_LOOP = 64;
+    /** 统计轮询线程繁忙程度的时间窗口（纳秒） */
+    private final static long LOAD_WINDOW_NANOS = 100_000_000L;
 
     private Selector selector;
     private String pollerName;
     private Server server;
     private Map<SocketChannel, SocketWrapper> clients; // 保存客户端socket，SocketWrapper 在处理后的连接重新注册时使用
     /**
-     * 事件队列：每当接收到新的连接时，将获得的 SocketChannel 对象
-     * 封装后注册到 Poller 的事件队列。
-     * 使用并发安全的对象，涉及到两个线程：轮询线程，Connector线程注册。
+     * 事件队列：每当接收到新的连接，或工作线程处理完连接上的请求时，将连接的 PollerEvent
+     * 放入事件队列，由轮询线程批量地注册到 selector 或更新监听的事件。
+     * 多生产者（Acceptor 线程和工作线程）单消费者（轮询线程）的无锁队列。
      */
-    private Queue<PollerEvent> pollerEventQueue;
+    private final MpscQueue<PollerEvent> pollerEventQueue;
+    /**
+     * 是否已经唤醒了轮询线程：轮询线程从 select 返回后置为 false，
+     * 其他线程放入事件后只有将其从 false 改为 true 的那个线程需要调用 selector.wakeup()，合并多次唤醒
+     */
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+
+    // 统计信息
+    /** 分配给该轮询线程的连接总数 */
+    private final LongAdder connectionCount = new LongAdder();
+    /** 调用 selector.wakeup() 的次数 */
+    private final LongAdder wakeupCount = new LongAdder();
+    /** 将连接注册到 selector 的次数，只由轮询线程修改 */
+    private volatile long keyRegistrationCount;
+    /** 修改 SelectionKey 监听事件的次数，只由轮询线程修改 */
+    private volatile long interestOpsUpdateCount;
+    /** 一次处理的事件数的最大值，只由轮询线程修改 */
+    private volatile int maxEventBatchSize;
+    /** 连接的超时管理，只由轮询线程访问，正在被工作线程处理的连接不在时间轮中 */
+    private final TimingWheel<SocketWrapper> timingWheel;
+    /** 本轮循环的时间戳，避免每个事件都获取一次时间 */
+    private long now;
+
+    // 繁忙程度，用于分配新连接
+    /** 最近的时间窗口内，轮询线程处理事件（不在 select 中阻塞）的时间占比 */
+    private volatile double busyRatio;
+    /** 正在 select 中阻塞时为开始阻塞的时间，否则为 0 */
+    private volatile long selectStartNanos;
+    /** 当前时间窗口的开始时间，只由轮询线程访问 */
+    private long windowStartNanos = System.nanoTime();
+    /** 当前时间窗口内在 select 中阻塞的时间，只由轮询线程访问 */
+    private long windowIdleNanos;
 
 
     Poller(String pollerName, Server server) throws IOException {
         this.selector = Selector.open();
         this.pollerName = pollerName;
         this.server = server;
-        this.pollerEventQueue = new ConcurrentLinkedQueue<>();
+        this.pollerEventQueue = new MpscQueue<>();
         this.clients = new ConcurrentHashMap<>();
+        this.now = System.currentTimeMillis();
+        this.timingWheel = new TimingWheel<>(TIMEOUT_WHEEL_SIZE, TIMEOUT_TICK_DURATION, now);
     }
 
     @Override
@@ -47,29 +97,18 @@ public class Poller implements Runnable {
                 // 监听事件队列中的连接
                 handleEvents();
 
-                if (selector.select() <= 0) {
-                    continue;
-                }
-                logger.info(String.format("%s 开始读取监听的事件", this.pollerName));
-                // 获取就绪事件
-                for (Iterator<SelectionKey> iter = selector.selectedKeys().iterator(); iter.hasNext(); iter.remove()) {
-                    SelectionKey key = iter.next();
-                    if (key.isReadable()) {
-                        /*
-                        【注意！！】：
-                            当浏览器加载一半时突然关闭连接（X按钮），那么就会发送连接断开信号，服务端就会
-                            处于可读状态，但 read 总是返回 -1，无法读到ByteBuffer，如果 while 循环中仅
-                            判断是否大于0的话，就不不断地处于可读状态，然后导致死循环，所以应该在客户端断
-                            开后，关闭服务端的监听。
-                         */
-                        logger.info(String.format("[%s] 读就绪，开始读取", ((SocketChannel)key.channel()).getRemoteAddress()));
-                        SocketWrapper socketWrapper = (SocketWrapper) key.attachment();
-                        socketWrapper.setLastCommutationTime(System.currentTimeMillis()); // 更新状态
-
-                        cancelReadListening(socketWrapper); // 取消读事件的监听
-                        server.processClient(socketWrapper);
-                    }
+                // 最多阻塞到时间轮的下一格，以便及时处理超时的连接
+                long selectStart = System.nanoTime();
+                selectStartNanos = selectStart;
+                int readyCount = selector.select(timingWheel.nextTickDelay(now));
+                selectStartNanos = 0;
+                updateBusyRatio(selectStart, System.nanoTime());
+                wakeupPending.set(false);
+                now = System.currentTimeMillis();
+                if (readyCount > 0) {
+                    processSelectedKeys();
                 }
+                timingWheel.advance(now, this::expire);
             } catch (IOException e) {
                 logger.warning(String.format("%s 的 selector 异常[%s]", this.pollerName, e.getMessage()));
                 e.printStackTrace();
@@ -78,85 +117,354 @@ public class Poller implements Runnable {
     }
 
     /**
-     * 向轮询线程注册一个连接
-     * @param isNew 用于判断是初次向Poller注册，还是处理完后又注册了监听事件
+     * 累计 select 阻塞的时间，时间窗口结束时计算处理事件的时间占比，与上一个窗口的结果取平均
+     */
+    private void updateBusyRatio(long selectStart, long selectEnd) {
+        windowIdleNanos += selectEnd - selectStart;
+        long window = selectEnd - windowStartNanos;
+        if (window >= LOAD_WINDOW_NANOS) {
+            double ratio = 1 - (double) Math.min(windowIdleNanos, window) / window;
+            busyRatio = (busyRatio + ratio) / 2;
+            windowStartNanos = selectEnd;
+            windowIdleNanos = 0;
+        }
+    }
+
+    /**
+     * 处理就绪的事件
+     */
+    private void processSelectedKeys() throws IOException {
+        logger.info(String.format("%s 开始读取监听的事件", this.pollerName));
+        // 获取就绪事件
+        for (Iterator<SelectionKey> iter = selector.selectedKeys().iterator(); iter.hasNext(); iter.remove()) {
+            SelectionKey key = iter.next();
+            if (key.isValid() && key.isAcceptable()) {
+                acceptConnections((ServerSocketChannel) key.channel());
+                continue;
+            }
+            if (key.isValid() && key.isWritable()) {
+                processWrite(key, (SocketWrapper) key.attachment());
+            }
+            if (key.isValid() && key.isReadable()) {
+                /*
+                【注意！！】：
+                    当浏览器加载一半时突然关闭连接（X按钮），那么就会发送连接断开信号，服务端就会
+                    处于可读状态，但 read 总是返回 -1，无法读到ByteBuffer，如果 while 循环中仅
+                    判断是否大于0的话，就不不断地处于可读状态，然后导致死循环，所以应该在客户端断
+                    开后，关闭服务端的监听。
+                 */
+                logger.info(String.format("[%s] 读就绪，开始读取", ((SocketChannel)key.channel()).getRemoteAddress()));
+                SocketWrapper socketWrapper = (SocketWrapper) key.attachment();
+
+                HttpRequest request = readRequest(key, socketWrapper);
+                // 请求还不完整，继续监听读事件，下次读就绪时接着解析
+                if (request == null) {
+                    if (socketWrapper.getClient().isOpen() && !socketWrapper.isCloseAfterFlush()) {
+                        refreshTimeout(socketWrapper);
+                    }
+                    continue;
+                }
+                dispatch(key, socketWrapper, request);
+            }
+        }
+    }
+
+    /**
+     * 处理解析出的完整请求：不会阻塞的请求直接在轮询线程中处理，其余交给工作线程
      */
-    void register(SocketChannel client, boolean isNew) {
-        SocketWrapper socketWrapper;
-        if (isNew) {
-            logger.info(String.format("新的连接被注册到 %s 的 PollerEvent 事件队列中", this.pollerName));
-            socketWrapper = new SocketWrapper(client, this);
-            clients.put(client, socketWrapper);
+    private void dispatch(SelectionKey key, SocketWrapper socketWrapper, HttpRequest request) {
+        // 处理期间不计算超时
+        timingWheel.cancel(socketWrapper.getTimeoutEntry());
+        socketWrapper.setHeaderTimerStarted(false);
+        // 不会阻塞的请求直接在轮询线程中处理
+        request = server.processInline(socketWrapper, request);
+        if (request == null) {
+            if (socketWrapper.getClient().isOpen()) {
+                updateInterestOps(key, socketWrapper.interestOps());
+                if (socketWrapper.hasPendingWrites()) { // 写出数据期间使用连接空闲超时，由 processWrite 刷新
+                    timingWheel.schedule(socketWrapper.getTimeoutEntry(), expiryTime, now);
+                } else {
+                    refreshTimeout(socketWrapper);
+                }
+            }
+            return;
+        }
+        // 交给工作线程处理，处理期间暂停监听，避免多个线程读取同一连接；SelectionKey 保留，处理完后再恢复监听
+        updateInterestOps(key, 0);
+        if (!server.processClient(socketWrapper, request)) {
+            sendServiceUnavailable(key, socketWrapper);
+        }
+    }
+
+    /**
+     * 读到数据后刷新连接的超时时间：读取请求头期间使用请求头读取超时，不随读到数据而延长；
+     * 读取请求体或空闲时使用连接空闲超时
+     */
+    private void refreshTimeout(SocketWrapper socketWrapper) {
+        if (socketWrapper.isReadingHeader()) {
+            if (!socketWrapper.isHeaderTimerStarted()) {
+                socketWrapper.setHeaderTimerStarted(true);
+                timingWheel.schedule(socketWrapper.getTimeoutEntry(), headerReadTimeout, now);
+            }
         } else {
-            socketWrapper = clients.get(client);
+            socketWrapper.setHeaderTimerStarted(false);
+            timingWheel.schedule(socketWrapper.getTimeoutEntry(), expiryTime, now);
+        }
+    }
+
+    /**
+     * 连接超时，关闭连接
+     */
+    private void expire(SocketWrapper socketWrapper) {
+        if (socketWrapper.isStreaming()) {
+            // 工作线程正在流式发送响应：积压的数据已写完时处理期间不计算超时，最近写出过数据时顺延
+            if (!socketWrapper.hasPendingWrites()) {
+                return;
+            }
+            long idle = now - socketWrapper.getLastWriteTime();
+            if (idle < expiryTime) {
+                timingWheel.schedule(socketWrapper.getTimeoutEntry(), expiryTime - idle, now);
+                return;
+            }
+        }
+        logger.info(String.format("%s 轮询的客户端[%s]%s超时，断开连接", this.pollerName, socketWrapper,
+                socketWrapper.isHeaderTimerStarted() ? "读取请求头" : "连接空闲"));
+        closeConnection(socketWrapper);
+    }
+
+    /**
+     * 在轮询线程中关闭连接
+     */
+    private void closeConnection(SocketWrapper socketWrapper) {
+        timingWheel.cancel(socketWrapper.getTimeoutEntry());
+        try {
+            socketWrapper.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 写就绪，继续写入连接上未写完的数据，写完后取消写事件的监听；
+     * 因写队列积压而暂停了读取的连接，写完后先处理缓冲区中已读取的管线化请求，再恢复读事件的监听
+     */
+    private void processWrite(SelectionKey key, SocketWrapper socketWrapper) {
+        try {
+            boolean flushed = socketWrapper.flush();
+            if (!socketWrapper.isHeaderTimerStarted()) { // 写出数据也算作连接活跃
+                timingWheel.schedule(socketWrapper.getTimeoutEntry(), expiryTime, now);
+            }
+            if (!flushed) {
+                return;
+            }
+            if (socketWrapper.isCloseAfterFlush()) {
+                logger.info(String.format("%s 数据写回完毕，关闭连接 %s", this.pollerName, socketWrapper.getClient()));
+                closeConnection(socketWrapper);
+            } else {
+                if (resumeReading(key, socketWrapper)) {
+                    return;
+                }
+                updateInterestOps(key, socketWrapper.interestOps());
+                if (socketWrapper.isStreaming()) { // 工作线程还在生成响应，处理期间不计算超时
+                    timingWheel.cancel(socketWrapper.getTimeoutEntry());
+                }
+            }
+        } catch (IOException e) {
+            logger.warning(String.format("%s 向客户端[%s]写数据失败：%s", this.pollerName, socketWrapper.getClient(), e.getMessage()));
+            closeConnection(socketWrapper);
         }
-        pollerEventQueue.offer(new PollerEvent(socketWrapper));
-        // 唤醒轮询线程（调用select()阻塞的话），更新监听状态
-        selector.wakeup();
     }
 
     /**
-     * 取消某个Socket的读事件在selector上的注册，因为将请求处理器放入线程池中后，
-     * 会导致当前socket被多个线程读取数据
+     * 因写队列积压而暂停了读取的连接，写完后先处理缓冲区中已读取的管线化请求
+     * @return 是否已处理了请求或连接已关闭（将要关闭），为 true 时调用者不再更新监听的事件
      */
-    void cancelReadListening(SocketWrapper socketWrapper) {
-        socketWrapper.getClient().keyFor(selector).cancel();
+    private boolean resumeReading(SelectionKey key, SocketWrapper socketWrapper) {
+        if (!socketWrapper.resumeReading()) {
+            return false;
+        }
+        HttpRequest request = parseBufferedRequest(key, socketWrapper);
+        if (request != null) {
+            dispatch(key, socketWrapper, request);
+            return true;
+        }
+        return !socketWrapper.getClient().isOpen() || socketWrapper.isCloseAfterFlush();
     }
 
+    /**
+     * 读取并解析请求，客户端关闭连接时关闭连接，请求格式错误时返回 400 并在写完后关闭连接
+     * @return 完整的请求，请求不完整或连接已关闭（将要关闭）时返回 null
+     */
+    private HttpRequest readRequest(SelectionKey key, SocketWrapper socketWrapper) {
+        try {
+            return socketWrapper.readRequest();
+        } catch (EOFException e) {
+            logger.info(String.format("%s 轮询的客户端[%s]已断开连接", this.pollerName, socketWrapper.getClient()));
+        } catch (HttpRequestParseException e) {
+            logger.warning(String.format("%s 解析请求失败[%s]", this.pollerName, e.getMessage()));
+            sendBadRequest(key, socketWrapper, e.getMessage());
+            return null;
+        } catch (IOException e) {
+            logger.warning(String.format("%s 读取数据失败[%s]", this.pollerName, e.getMessage()));
+        }
+        closeConnection(socketWrapper);
+        return null;
+    }
 
     /**
-     * 将Socket注册到Selector上，监听读事件
+     * 从已读取但未处理的数据中解析下一个请求，请求格式错误时返回 400 并在写完后关闭连接
+     * @return 完整的请求，没有时返回 null
      */
-    private void enableReadListening(SocketWrapper socketWrapper) {
+    private HttpRequest parseBufferedRequest(SelectionKey key, SocketWrapper socketWrapper) {
         try {
-            socketWrapper.getClient().register(selector, SelectionKey.OP_READ);
-        } catch (ClosedChannelException ignore) {
+            return socketWrapper.parseRequest();
+        } catch (HttpRequestParseException e) {
+            logger.warning(String.format("%s 解析请求失败[%s]", this.pollerName, e.getMessage()));
+            sendBadRequest(key, socketWrapper, e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * 请求处理器过载，在轮询线程中直接返回预先编码的 503 响应，写完后关闭连接
+     */
+    private void sendServiceUnavailable(SelectionKey key, SocketWrapper socketWrapper) {
+        try {
+            socketWrapper.write(RequestProcessor.SERVICE_UNAVAILABLE.duplicate());
+            closeAfterFlush(key, socketWrapper);
+        } catch (IOException e) {
+            logger.warning(String.format("%s 向客户端[%s]写数据失败：%s", this.pollerName, socketWrapper.getClient(), e.getMessage()));
+            closeConnection(socketWrapper);
+        }
+    }
 
     /**
-     * 将事件队列中的事件注册到 selector 中
+     * 请求格式错误，在轮询线程中返回 400 响应，排在连接上未写完的响应之后，写完后关闭连接
      */
-    private void handleEvents() {
-        for (int size = pollerEventQueue.size(); size > 0; size--) {
-            if (pollerEventQueue.peek() != null) {
-                pollerEventQueue.poll().start();
-            }
+    private void sendBadRequest(SelectionKey key, SocketWrapper socketWrapper, String msg) {
+        try {
+            socketWrapper.write(badRequest(msg));
+            closeAfterFlush(key, socketWrapper);
+        } catch (IOException e) {
+            logger.warning(String.format("%s 向客户端[%s]写数据失败：%s", this.pollerName, socketWrapper.getClient(), e.getMessage()));
+            closeConnection(socketWrapper);
         }
     }
 
+    /**
+     * 写队列中的数据写完后关闭连接，没有写完时监听写事件继续写
+     */
+    private void closeAfterFlush(SelectionKey key, SocketWrapper socketWrapper) throws IOException {
+        if (!socketWrapper.closeAfterFlush()) {
+            updateInterestOps(key, socketWrapper.interestOps());
+            timingWheel.schedule(socketWrapper.getTimeoutEntry(), expiryTime, now);
+        }
+    }
 
     /**
-     * 清理过期（长时间未通信）的 HTTP 长连接
+     * 请求格式错误时的 400 响应，写完后关闭连接
      */
-    void clearExpiredConnection() {
-        for (Iterator<Map.Entry<SocketChannel, SocketWrapper>> iter = clients.entrySet().iterator(); iter.hasNext(); ) {
-            SocketWrapper client = iter.next().getValue();
-            // 断开连接
-            if (!client.getClient().isConnected()) {
-                logger.info(String.format("%s 轮询的客户端[%s]已断开连接，取消监听", this.pollerName, client.getClient().toString()));
-                try {
-                    client.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+    static HttpResponse badRequest(String msg) {
+        HttpResponse response = new HttpResponse();
+        ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_400, msg);
+        response.addHeader(HttpConstant.CONNECTION, "close");
+        return response;
+    }
+
+    /**
+     * 向轮询线程注册一个新的连接
+     */
+    void register(SocketChannel client) {
+        logger.info(String.format("新的连接被注册到 %s 的 PollerEvent 事件队列中", this.pollerName));
+        addEvent(newSocketWrapper(client).getPollerEvent());
+    }
+
+    private SocketWrapper newSocketWrapper(SocketChannel client) {
+        SocketWrapper socketWrapper = new SocketWrapper(client, this);
+        clients.put(client, socketWrapper);
+        connectionCount.increment();
+        return socketWrapper;
+    }
+
+    /**
+     * 由该轮询线程接收服务器Socket上的连接（非阻塞模式），需要在轮询线程启动前调用
+     */
+    void listen(ServerSocketChannel serverChannel) throws IOException {
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * 接收连接，并直接在该轮询线程上监听，不经过事件队列
+     */
+    private void acceptConnections(ServerSocketChannel serverChannel) {
+        for (int i = 0; i < MAX_ACCEPTS_PER_LOOP; i++) {
+            SocketChannel client = null;
+            try {
+                // 多个轮询线程共享 ServerSocketChannel 时，连接可能已被其他线程接收，返回 null
+                client = serverChannel.accept();
+                if (client == null) {
+                    return;
                 }
-                selector.wakeup();
-                iter.remove();
-            } else if (System.currentTimeMillis() - client.getLastCommutationTime() > expiryTime) {
-                logger.info(String.format("%s 轮询的客户端[%s]的连接过期，断开连接", getPollerName(), client));
-                // 连接过期
-                try {
-                    client.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+                client.configureBlocking(false);
+            } catch (IOException e) {
+                if (server.isRunning()) {
+                    logger.warning(String.format("%s 接收连接失败[%s]", this.pollerName, e.getMessage()));
+                }
+                if (client != null) {
+                    try {
+                        client.close();
+                    } catch (IOException ignore) {
+                    }
                 }
-                selector.wakeup();
-                iter.remove();
+                return;
             }
+            newSocketWrapper(client).getPollerEvent().run();
+        }
+    }
+
+    /**
+     * 工作线程处理完连接上的请求后调用，恢复对该连接的监听（读事件，及未写完时的写事件）
+     */
+    void resume(SocketWrapper socketWrapper) {
+        addEvent(socketWrapper.getPollerEvent());
+    }
+
+    private void addEvent(PollerEvent event) {
+        pollerEventQueue.offer(event);
+        // 唤醒轮询线程（调用select()阻塞的话），更新监听状态，已有线程唤醒过的话不再重复唤醒
+        if (wakeupPending.compareAndSet(false, true)) {
+            wakeupCount.increment();
+            selector.wakeup();
         }
     }
 
+    /**
+     * 修改 SelectionKey 监听的事件，只在轮询线程中调用，由 selector 在下次 select 时批量提交
+     */
+    private void updateInterestOps(SelectionKey key, int ops) {
+        if (key.interestOps() != ops) {
+            key.interestOps(ops);
+            interestOpsUpdateCount++;
+        }
+    }
+
+
+    /**
+     * 处理事件队列中的事件：注册新连接或更新连接监听的事件
+     */
+    private void handleEvents() {
+        int count = 0;
+        PollerEvent event;
+        while ((event = pollerEventQueue.poll()) != null) {
+            event.run();
+            count++;
+        }
+        if (count > maxEventBatchSize) {
+            maxEventBatchSize = count;
+        }
+    }
+
+
     /**
      * 关闭轮询线程，并关闭所有连接
      */
@@ -180,24 +488,102 @@ public class Poller implements Runnable {
     }
 
     /**
-     * 事件对象
+     * 最近处理事件（不在 select 中阻塞）的时间占比，0 ~ 1
+     */
+    double getBusyRatio() {
+        long selectStart = selectStartNanos;
+        // 已经空闲了一个时间窗口以上，上次计算的结果已经过时
+        if (selectStart != 0 && System.nanoTime() - selectStart >= LOAD_WINDOW_NANOS) {
+            return 0;
+        }
+        return busyRatio;
+    }
+
+    /**
+     * 分配给该轮询线程的连接总数
+     */
+    long getConnectionCount() {
+        return connectionCount.sum();
+    }
+
+    /**
+     * 调用 selector.wakeup() 的次数
      */
-    private class PollerEvent {
-        private SocketWrapper socketWrapper;
+    long getWakeupCount() {
+        return wakeupCount.sum();
+    }
+
+    /**
+     * 事件队列中等待处理的事件数
+     */
+    int getEventQueueDepth() {
+        return pollerEventQueue.size();
+    }
+
+    /**
+     * 放入事件队列的事件总数
+     */
+    long getEventCount() {
+        return pollerEventQueue.getOfferCount();
+    }
+
+    /**
+     * 一次处理的事件数的最大值
+     */
+    int getMaxEventBatchSize() {
+        return maxEventBatchSize;
+    }
+
+    /**
+     * 将连接注册到 selector 的次数
+     */
+    long getKeyRegistrationCount() {
+        return keyRegistrationCount;
+    }
+
+    /**
+     * 修改连接监听事件的次数
+     */
+    long getInterestOpsUpdateCount() {
+        return interestOpsUpdateCount;
+    }
+
+    /**
+     * 事件对象，每个连接一个，重复使用：
+     * 连接第一次处理时注册到 selector，之后只修改 SelectionKey 监听的事件
+     */
+    class PollerEvent {
+        private final SocketWrapper socketWrapper;
 
         PollerEvent(SocketWrapper socketWrapper) {
             this.socketWrapper = socketWrapper;
         }
 
-        void start() {
-            // 将客户端连接注册到 selector 上
+        void run() {
+            SocketChannel client = socketWrapper.getClient();
+            if (!client.isOpen()) {
+                return;
+            }
+            SelectionKey key = socketWrapper.getSelectionKey();
             try {
-                if (socketWrapper.getClient().isOpen()) {
-                    socketWrapper.getClient().register(Poller.this.getSelector(), SelectionKey.OP_READ, socketWrapper);
-                    logger.info(String.format("%s 开始监听 %s", Poller.this.pollerName, socketWrapper.getClient().getRemoteAddress()));
+                if (key == null) {
+                    // 将客户端连接注册到 selector 上，整个连接期间只注册一次
+                    key = client.register(Poller.this.getSelector(), socketWrapper.interestOps(), socketWrapper);
+                    socketWrapper.setSelectionKey(key);
+                    keyRegistrationCount++;
+                    logger.info(String.format("%s 开始监听 %s", Poller.this.pollerName, client.getRemoteAddress()));
+                } else if (resumeReading(key, socketWrapper)) { // 工作线程暂停处理时写队列已写完
+                    return;
+                } else {
+                    updateInterestOps(key, socketWrapper.interestOps());
                 }
-            } catch (ClosedChannelException e) {
-                e.printStackTrace();
+                if (socketWrapper.isStreaming() && !socketWrapper.hasPendingWrites()) {
+                    // 工作线程还在生成响应，积压的数据已写完，处理期间不计算超时
+                    timingWheel.cancel(socketWrapper.getTimeoutEntry());
+                } else {
+                    timingWheel.schedule(socketWrapper.getTimeoutEntry(), expiryTime, now);
+                }
+            } catch (ClosedChannelException | CancelledKeyException e) {
                 logger.info(String.format("%s 监听连接失败[%s]", Poller.this.pollerName, e.getMessage()));
             } catch (IOException ignore) {
             }
@@ -0,0 +1,94 @@
+package org.webserver.connector;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 新连接分配给轮询线程的策略，由 Acceptor 线程调用，实现需要线程安全
+ */
+interface PollerAssignment {
+    /** 轮流分配 */
+    String ROUND_ROBIN = "round-robin";
+    /** 分配给当前连接数最少的轮询线程 */
+    String LEAST_CONNECTIONS = "least-connections";
+    /** 分配给最近最空闲（select 阻塞时间占比最高）的轮询线程 */
+    String LEAST_BUSY = "least-busy";
+
+    /**
+     * 为新连接选择轮询线程
+     */
+    Poller select(List<Poller> pollers);
+
+    /**
+     * 根据配置的名字创建分配策略
+     */
+    static PollerAssignment of(String name) {
+        switch (name) {
+            case ROUND_ROBIN:
+                return new RoundRobin();
+            case LEAST_CONNECTIONS:
+                return new LeastConnections();
+            case LEAST_BUSY:
+                return new LeastBusy();
+            default:
+                throw new IllegalArgumentException("不支持的轮询线程分配策略：" + name);
+        }
+    }
+
+    final class RoundRobin implements PollerAssignment {
+        private final AtomicInteger nextIndex = new AtomicInteger(0);
+
+        @Override
+        public Poller select(List<Poller> pollers) {
+            // nextIndex 加到最大值溢出后为负数
+            return pollers.get(Math.abs(nextIndex.getAndIncrement() % pollers.size()));
+        }
+    }
+
+    final class LeastConnections implements PollerAssignment {
+        /** 每次从不同的位置开始比较，连接数相同时不总是选择第一个 */
+        private final AtomicInteger start = new AtomicInteger(0);
+
+        @Override
+        public Poller select(List<Poller> pollers) {
+            int size = pollers.size();
+            int offset = Math.abs(start.getAndIncrement() % size);
+            Poller selected = null;
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                Poller poller = pollers.get((offset + i) % size);
+                int count = poller.getClients().size();
+                if (count < min) {
+                    min = count;
+                    selected = poller;
+                }
+            }
+            return selected;
+        }
+    }
+
+    final class LeastBusy implements PollerAssignment {
+        private final AtomicInteger start = new AtomicInteger(0);
+
+        @Override
+        public Poller select(List<Poller> pollers) {
+            int size = pollers.size();
+            int offset = Math.abs(start.getAndIncrement() % size);
+            Poller selected = null;
+            double minRatio = Double.MAX_VALUE;
+            int minCount = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                Poller poller = pollers.get((offset + i) % size);
+                double ratio = poller.getBusyRatio();
+                int count = poller.getClients().size();
+                // 繁忙程度相同（如都空闲）时选择连接数少的
+                if (ratio < minRatio || (ratio == minRatio && count < minCount)) {
+                    minRatio = ratio;
+                    minCount = count;
+                    selected = poller;
+                }
+            }
+            return selected;
+        }
+    }
+}
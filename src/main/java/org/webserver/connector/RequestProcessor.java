@@ -3,23 +3,31 @@ package org.webserver.connector;
 import org.webserver.constant.HttpConstant;
 import org.webserver.constant.ServerConfig;
 import org.webserver.container.Container;
+import org.webserver.container.Router;
 import org.webserver.exception.HttpMethodNotSupportedException;
+import org.webserver.exception.HttpRequestParseException;
 import org.webserver.http.Cookie;
 import org.webserver.http.request.HttpRequest;
 import org.webserver.http.request.HttpRequestParser;
+import org.webserver.http.response.GzipEncoder;
 import org.webserver.http.response.HttpResponse;
 import org.webserver.http.response.HttpStatus;
+import org.webserver.http.response.PreEncodedResponse;
+import org.webserver.http.response.ResponseChannel;
+import org.webserver.resource.StaticResourceCache;
+import org.webserver.resource.StaticResourceHandler;
 import org.webserver.util.ErrorResponseUtil;
+import org.webserver.util.IOUtil;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
 /**
@@ -34,41 +42,113 @@ class RequestProcessor {
     private final static int REQUEST_PROCESSOR_THREAD_COUNT =
             Integer.parseInt(System.getProperty(ServerConfig.REQUEST_PROCESSOR_THREAD_COUNT));
 
+    /** 连接空闲超时（秒），通过 Keep-Alive 响应头告知客户端 */
+    private final static long KEEP_ALIVE_TIMEOUT =
+            Long.parseLong(System.getProperty(ServerConfig.CONNECTION_EXPIRY_TIME)) / 1000;
+
+    /** 每个持久连接最多处理的请求数，不大于 0 表示不限制 */
+    private final static int KEEP_ALIVE_MAX_REQUESTS =
+            Integer.getInteger(ServerConfig.KEEP_ALIVE_MAX_REQUESTS, 100);
+
+    /** 流式发送响应时，连接上未写出的数据超过该值（字节）后工作线程等待客户端读取 */
+    private final static int RESPONSE_BUFFER_SIZE = Integer.getInteger(ServerConfig.RESPONSE_BUFFER_SIZE, 64 * 1024);
+
     /** WEBAPP根路径 */
-    private final String WEBAPP_ROOT_PATH =
-            RequestProcessor.class.getResource("/webapp/")
-                    .toString().substring(6); //substring(6)去掉开头的file:/
+    private final String WEBAPP_ROOT_PATH = IOUtil.classpathDirectory("/webapp/");
+
+    /** 等待处理的请求数上限（使用虚拟线程时为正在处理的请求数上限），不大于 0 表示不限制 */
+    private final static int REQUEST_QUEUE_CAPACITY =
+            Integer.getInteger(ServerConfig.REQUEST_QUEUE_CAPACITY, 10000);
+
+    /** 请求等待处理的最长时间（毫秒），不大于 0 表示不限制 */
+    private final static long REQUEST_QUEUE_MAX_WAIT =
+            Long.getLong(ServerConfig.REQUEST_QUEUE_MAX_WAIT, 0);
+
+    /** 是否在轮询线程中直接处理不会阻塞的请求 */
+    private final static boolean INLINE_EXECUTION =
+            Boolean.parseBoolean(System.getProperty(ServerConfig.INLINE_EXECUTION, "true"));
+
+    /** 过载时返回的 503 响应，预先编码，由 Poller 或工作线程直接写回，写完后关闭连接 */
+    static final PreEncodedResponse SERVICE_UNAVAILABLE = PreEncodedResponse.of(HttpStatus.SC_503,
+            "服务器繁忙，请稍后重试", HttpConstant.RETRY_AFTER, "1", HttpConstant.CONNECTION, "close");
 
-    /** MIME TYPE */
-    private final Properties mime;
+    /** 是否使用虚拟线程，虚拟线程不需要排队，此时限制的是正在处理的请求数 */
+    private boolean virtualThreads;
 
     /** 处理响应的线程池 */
-    private final ExecutorService threadPool =
-            Executors.newFixedThreadPool(REQUEST_PROCESSOR_THREAD_COUNT);
+    private final ExecutorService threadPool = newThreadPool();
+
+    /** 已接收、还未开始处理的请求数（使用虚拟线程时为还未处理完的请求数） */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    /** 因等待处理的请求已达上限而拒绝的请求数 */
+    private final LongAdder rejectedCount = new LongAdder();
+    /** 等待时间超过上限而放弃处理的请求数 */
+    private final LongAdder expiredCount = new LongAdder();
 
     /** 容器 */
     private final Container container;
 
+    /** 静态资源 */
+    private final StaticResourceHandler staticResources;
+
     RequestProcessor(Container container) {
         this.container = container;
-        this.mime = new Properties();
-        InputStream mimeInput = ClassLoader.getSystemResourceAsStream("mime.properties");
-        if (mimeInput != null) {
-            try {
-                this.mime.load(mimeInput);
-            } catch (IOException e) {
-                serverLogger.warning("加载配置文件 mime.properties 失败");
-                e.printStackTrace();
-            }
-        } else {
-            serverLogger.warning("缺少配置文件 mime.properties");
+        this.staticResources = new StaticResourceHandler(Path.of(WEBAPP_ROOT_PATH));
+    }
+
+
+    /**
+     * 将HTTP请求添加到线程池中处理，等待处理的请求已达上限时拒绝
+     * @return 是否已接收，未接收时由调用者返回 503
+     */
+    boolean process(SocketWrapper socketWrapper, HttpRequest request) {
+        if (pendingCount.incrementAndGet() > REQUEST_QUEUE_CAPACITY && REQUEST_QUEUE_CAPACITY > 0) {
+            pendingCount.decrementAndGet();
+            rejectedCount.increment();
+            return false;
+        }
+        try {
+            threadPool.execute(new RequestProcessTask(socketWrapper, request));
+            return true;
+        } catch (RejectedExecutionException e) { // 线程池已关闭
+            pendingCount.decrementAndGet();
+            rejectedCount.increment();
+            return false;
         }
     }
 
+    /**
+     * 在调用线程（轮询线程）中处理不会阻塞的请求，包括随后管线化的请求，直到遇到需要交给线程池处理的请求。
+     * 请求解析后由轮询线程调用，先查找请求映射的路由
+     * @return 需要交给线程池处理的请求，没有时（已全部处理，或连接已关闭）返回 null
+     */
+    HttpRequest processInline(SocketWrapper socketWrapper, HttpRequest request) {
+        Router.Route route = container.route(request);
+        request.setRoute(route);
+        if (!INLINE_EXECUTION || (route != null && !route.isNonBlocking(request.getMethod()))) {
+            return request;
+        }
+        return new RequestProcessTask(socketWrapper, request).processInline();
+    }
 
-    /** 将HTTP请求添加到线程池中处理 */
-    void process(SocketWrapper socketWrapper) {
-        threadPool.submit(new RequestProcessTask(socketWrapper));
+    /**
+     * 创建处理请求的线程池：配置了使用虚拟线程且 JDK 支持（21 及以上）时，每个请求一个虚拟线程，
+     * 阻塞的控制器方法不会占用有限的工作线程；否则使用固定大小的线程池
+     */
+    private ExecutorService newThreadPool() {
+        if (Boolean.getBoolean(ServerConfig.REQUEST_PROCESSOR_VIRTUAL_THREADS)) {
+            try {
+                // 以 JDK 11 为编译目标，通过反射调用 JDK 21 的 API
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                ExecutorService executor = (ExecutorService) factory.invoke(null);
+                serverLogger.info("使用虚拟线程处理请求");
+                this.virtualThreads = true;
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                serverLogger.warning(String.format("当前 JDK（%s）不支持虚拟线程，使用固定大小的线程池", Runtime.version()));
+            }
+        }
+        return Executors.newFixedThreadPool(REQUEST_PROCESSOR_THREAD_COUNT);
     }
 
     /** 关闭线程池 */
@@ -76,29 +156,141 @@ class RequestProcessor {
         this.threadPool.shutdown();
     }
 
+    /**
+     * 等待处理的请求数（使用虚拟线程时为正在处理的请求数）
+     */
+    int getQueueDepth() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 因等待处理的请求已达上限而拒绝（返回 503）的请求数
+     */
+    long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * 等待时间超过上限而放弃处理（返回 503）的请求数
+     */
+    long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    StaticResourceCache getStaticResourceCache() {
+        return staticResources.getCache();
+    }
+
     /** 请求处理任务类 */
     private class RequestProcessTask implements Runnable {
         private SocketWrapper socketWrapper;
+        private HttpRequest request;
 
-        RequestProcessTask(SocketWrapper socketWrapper) {
+        RequestProcessTask(SocketWrapper socketWrapper, HttpRequest request) {
             this.socketWrapper = socketWrapper;
+            this.request = request;
         }
 
+        /** 放入线程池的时间 */
+        private final long submitTime = System.currentTimeMillis();
+
         @Override
         public void run() {
-            // 解析请求
-            HttpRequest request = HttpRequestParser.parseRequest(socketWrapper, RequestProcessor.this.container);
+            if (virtualThreads) {
+                try {
+                    processRequests();
+                } finally {
+                    pendingCount.decrementAndGet();
+                }
+                return;
+            }
+            pendingCount.decrementAndGet();
+            if (REQUEST_QUEUE_MAX_WAIT > 0 && System.currentTimeMillis() - submitTime > REQUEST_QUEUE_MAX_WAIT) {
+                expiredCount.increment();
+                serverLogger.warning(String.format("请求等待处理超时，返回 503：%s", request.getRequestURI()));
+                writeServiceUnavailable();
+                return;
+            }
+            processRequests();
+        }
 
-            // 构建响应
-            HttpResponse response = buildResponse(request);
+        /**
+         * 在轮询线程中依次处理能够内联处理的请求：不会阻塞的控制器方法，或已缓存的静态资源，
+         * 处理完后由轮询线程恢复对连接的监听
+         * @return 剩余的需要交给线程池处理的请求，没有时返回 null
+         */
+        HttpRequest processInline() {
+            HttpRequest request = this.request;
+            while (request != null && socketWrapper.getClient().isOpen()) {
+                HttpResponse cachedResponse = null;
+                Router.Route route = request.getRoute();
+                if (route == null) { // 静态资源，缓存中没有时需要访问文件系统
+                    cachedResponse = staticResources.handleCached(request);
+                    if (cachedResponse == null) {
+                        break;
+                    }
+                } else if (!route.isNonBlocking(request.getMethod())) {
+                    break;
+                }
+                if (!processRequest(request, cachedResponse, false)) { // 非持久连接
+                    closeAfterFlush();
+                    return null;
+                }
+                if (socketWrapper.pauseReadingIfBacklogged()) { // 客户端没有读取响应，写完后由 Poller 继续
+                    return null;
+                }
+                request = nextPipelinedRequest();
+            }
+            return socketWrapper.getClient().isOpen() ? request : null;
+        }
 
-            //是否需要向客户端返回 Cookie:JSESSIONID=xxx
-            if (request.getSession().isNew()) {
-                response.addCookie(new Cookie(HttpConstant.JSESSIONID, request.getSession().getID()));
+        private void processRequests() {
+            // 依次处理该连接上的所有请求（HTTP 管线化），保证响应按请求顺序写回
+            HttpRequest request = this.request;
+            while (request != null && socketWrapper.getClient().isOpen()) {
+                if (!processRequest(request, null, true)) { // 非持久连接
+                    closeAfterFlush();
+                    break;
+                }
+                if (socketWrapper.pauseReadingIfBacklogged()) { // 客户端没有读取响应，写完后由 Poller 继续
+                    break;
+                }
+                request = nextPipelinedRequest();
+            }
+            // 持久连接，或响应还未写完的非持久连接，恢复 Poller 对连接的监听
+            if (socketWrapper.getClient().isOpen()) {
+                socketWrapper.endStreaming();
+                socketWrapper.getPoller().resume(socketWrapper);
+                serverLogger.info(String.format("持久连接：%s 恢复了Poller的监听", socketWrapper.getClient()));
             }
+        }
 
-            // 写回并处理连接（持久连接or非持久连接）
-            writeResponse(request, response);
+        /**
+         * 处理单个请求并写回响应
+         * @param cachedResponse 在轮询线程中从缓存构建的静态资源响应，为 null 时构建响应
+         * @param streaming 是否允许流式发送响应（在工作线程中处理时），在轮询线程中不能等待客户端读取
+         * @return 连接是否保持
+         */
+        private boolean processRequest(HttpRequest request, HttpResponse cachedResponse, boolean streaming) {
+            // 绑定 Session
+            HttpRequestParser.parseSession(request, RequestProcessor.this.container);
+
+            // 构建响应，HTTP/1.0 不支持 chunked 编码
+            SocketResponseChannel channel = new SocketResponseChannel(request);
+            HttpResponse response = cachedResponse != null ? cachedResponse : buildResponse(request,
+                    streaming && !"HTTP/1.0".equals(request.getProtocol()) ? channel : null);
+
+            // 已分块发送的响应处理出错，写完已发送的数据后关闭连接
+            if (response.isAborted()) {
+                response.release();
+                return false;
+            }
+
+            // 连接相关的响应头，已流式发送的响应在提交响应头时设置
+            boolean keepAlive = channel.completeHeaders(response);
+
+            // 写回数据
+            writeResponse(response);
 
             // 设置session上次访问时间
             request.getSession().setLastAccessedTime(System.currentTimeMillis());
@@ -110,91 +302,178 @@ class RequestProcessor {
                         response.getStatus().getCode(),
                         response.getContentLength()));
             } catch (Exception ignore){}
+            return keepAlive;
+        }
+
+        /**
+         * 从连接上已读取但未处理的数据中解析下一个请求（客户端管线化发送的请求）。
+         * 请求格式错误时 400 响应排在之前的响应之后写回，写完后关闭连接；没有写完时由调用者恢复 Poller 的监听继续写
+         * @return 完整的请求，没有完整的请求或请求格式错误时返回 null
+         */
+        private HttpRequest nextPipelinedRequest() {
+            try {
+                HttpRequest request = socketWrapper.parseRequest();
+                if (request != null) {
+                    request.setRoute(RequestProcessor.this.container.route(request));
+                }
+                return request;
+            } catch (HttpRequestParseException e) {
+                serverLogger.warning(String.format("解析管线化请求失败[%s]", e.getMessage()));
+                try {
+                    socketWrapper.write(Poller.badRequest(e.getMessage()));
+                } catch (IOException ex) {
+                    closeConnection();
+                    return null;
+                }
+                closeAfterFlush();
+                return null;
+            }
         }
 
 
         /**
          * 构建响应
+         * @param channel 流式发送响应的通道，为 null 时响应全部缓冲
          */
-        private HttpResponse buildResponse(HttpRequest request) {
-            HttpResponse response;
+        private HttpResponse buildResponse(HttpRequest request, ResponseChannel channel) {
+            HttpResponse response = new HttpResponse();
+            response.setChannel(channel);
             try {
-                response = RequestProcessor.this.container.handle(request);
+                response = RequestProcessor.this.container.handle(request, request.getRoute(), response);
             } catch (HttpMethodNotSupportedException e) { // 不支持的方法
-                response = new HttpResponse();
                 ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_405, "不支持 " + request.getMethod() + "方法");
             }
 
             // 静态资源
             if (response == null) {
-                response = processStaticResource(request);
+                return staticResources.handle(request);
             }
 
+            // 压缩动态生成的响应，静态资源使用缓存中预先压缩的内容
+            try {
+                GzipEncoder.encode(request, response);
+            } catch (IOException e) {
+                serverLogger.warning(String.format("压缩响应失败（%s）：%s", request.getRequestURI(), e.getMessage()));
+            }
             return response;
         }
 
         /**
-         * 处理静态资源请求
+         * 写回数据，不会阻塞，socket 的发送缓冲区满时剩余的数据由 Poller 继续写
          */
-        private HttpResponse processStaticResource(HttpRequest request) {
-            HttpResponse response = new HttpResponse();
-            // 获得请求的资源名
-            String URI = request.getRequestURI();
-            int idx = URI.indexOf('?');
-            String filename = URI.substring(1, idx == -1 ? URI.length() : idx);
-            filename = RequestProcessor.this.WEBAPP_ROOT_PATH + filename;
-
-            String extName = filename.substring(filename.lastIndexOf('.') + 1);
-            response.setContentType(mime.getProperty(extName));
-            try (FileInputStream fin = new FileInputStream(filename)) {
-                response.setContentLength(Files.size(Path.of(filename)));
-                byte[] buffer = new byte[512];
-                int len;
-                while ((len = fin.read(buffer)) > 0) {
-                    response.getOutputStream().write(buffer, 0, len);
-                }
+        private void writeResponse(HttpResponse response) {
+            try {
+                socketWrapper.write(response);
+            } catch (IOException e) {
+                serverLogger.warning(String.format("向客户端[%s]写数据失败：%s", socketWrapper.getClient(), e.getMessage()));
+                closeConnection();
             }
-            // 404
-            catch (FileNotFoundException e) {
-                ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_400, request.getRequestURI());
-                serverLogger.warning(String.format("未找到文件：%s", filename));
+        }
+
+        /**
+         * 流式发送响应的通道：提交响应头前补充连接相关的响应头，发送后写队列积压过多时等待（背压）
+         */
+        private class SocketResponseChannel implements ResponseChannel {
+            private final HttpRequest request;
+            /** 连接是否保持，补充响应头时确定 */
+            private Boolean keepAlive;
+
+            SocketResponseChannel(HttpRequest request) {
+                this.request = request;
             }
-            // 500
-            catch (IOException e) {
-                ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_500, e.getMessage());
-                serverLogger.warning(String.format("读取静态文件失败（%s）：%s", filename, e.getMessage()));
-                response.setStatus(HttpStatus.SC_500);
+
+            @Override
+            public void beforeCommit(HttpResponse response) {
+                completeHeaders(response);
             }
 
-            return response;
+            /**
+             * 补充连接相关的响应头（只补充一次）：是否需要向客户端返回 Cookie:JSESSIONID=xxx，持久连接 or 非持久连接
+             * @return 连接是否保持
+             */
+            boolean completeHeaders(HttpResponse response) {
+                if (keepAlive == null) {
+                    if (request.getSession().isNew()) {
+                        response.addCookie(new Cookie(HttpConstant.JSESSIONID, request.getSession().getID()));
+                    }
+                    keepAlive = keepAlive(request, response);
+                }
+                return keepAlive;
+            }
+
+            @Override
+            public void send(ByteBuffer[] data, Runnable releaser) throws IOException {
+                socketWrapper.write(data, releaser);
+                socketWrapper.awaitDrain(RESPONSE_BUFFER_SIZE);
+            }
         }
 
+        /**
+         * 判断连接是否保持，并设置相应的响应头：
+         * HTTP/1.1 默认保持连接，HTTP/1.0 需要客户端显式要求，达到最大请求数后关闭连接
+         */
+        private boolean keepAlive(HttpRequest request, HttpResponse response) {
+            String conn = request.getHeader(HttpConstant.CONNECTION);
+            boolean http10 = "HTTP/1.0".equals(request.getProtocol());
+            boolean keepAlive = http10
+                    ? conn != null && conn.toLowerCase().contains("keep-alive")
+                    : conn == null || !conn.toLowerCase().contains("close");
+            int count = socketWrapper.incrementRequestCount();
+            if (keepAlive && KEEP_ALIVE_MAX_REQUESTS > 0 && count >= KEEP_ALIVE_MAX_REQUESTS) {
+                keepAlive = false;
+            }
+            if (!keepAlive) {
+                response.addHeader(HttpConstant.CONNECTION, "close");
+                return false;
+            }
+            if (http10) {
+                response.addHeader(HttpConstant.CONNECTION, "keep-alive");
+            }
+            response.addHeader(HttpConstant.KEEP_ALIVE, KEEP_ALIVE_MAX_REQUESTS > 0
+                    ? String.format("timeout=%d, max=%d", KEEP_ALIVE_TIMEOUT, KEEP_ALIVE_MAX_REQUESTS - count)
+                    : "timeout=" + KEEP_ALIVE_TIMEOUT);
+            return true;
+        }
 
         /**
-         * 写回数据，并处理连接
+         * 等待超时的请求不再处理，返回 503 并在写完后关闭连接
          */
-        private void writeResponse(HttpRequest request, HttpResponse response) {
-            // 写回数据
+        private void writeServiceUnavailable() {
             try {
-                socketWrapper.getClient().write(response.getResponseData());
+                socketWrapper.write(SERVICE_UNAVAILABLE.duplicate());
             } catch (IOException e) {
-                serverLogger.warning(String.format("向客户端[%s]写数据失败：%s", socketWrapper.getClient(), e.getMessage()));
-                e.printStackTrace();
+                closeConnection();
+                return;
+            }
+            closeAfterFlush();
+            if (socketWrapper.getClient().isOpen()) { // 没有写完，由 Poller 继续写
+                socketWrapper.getPoller().resume(socketWrapper);
             }
+        }
 
-            // 处理连接
-            String conn = request.getHeader(HttpConstant.CONNECTION);
-            if (conn != null && conn.contains("close")) { // 非持久连接
-                try {
+        /**
+         * 响应写完后关闭连接
+         */
+        private void closeAfterFlush() {
+            try {
+                if (!socketWrapper.closeAfterFlush()) {
+                    serverLogger.info(String.format("非持久连接：%s 的响应写完后关闭", socketWrapper.getClient()));
+                } else {
                     serverLogger.info(String.format("非持久连接：关闭 %s", socketWrapper.getClient()));
-                    socketWrapper.close();
-                } catch (IOException e) {
-                    serverLogger.warning("关闭连接失败：" + e.getMessage());
-                    e.printStackTrace();
                 }
-            } else { // 持久连接
-                socketWrapper.getPoller().register(socketWrapper.getClient(), false);
-                serverLogger.info(String.format("持久连接：%s 被重新注册到了Poller", socketWrapper.getClient()));
+            } catch (IOException e) {
+                serverLogger.warning("关闭连接失败：" + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        private void closeConnection() {
+            try {
+                serverLogger.info(String.format("关闭连接 %s", socketWrapper.getClient()));
+                socketWrapper.close();
+            } catch (IOException e) {
+                serverLogger.warning("关闭连接失败：" + e.getMessage());
+                e.printStackTrace();
             }
         }
     }
@@ -3,15 +3,16 @@ package org.webserver.connector;
 import org.webserver.constant.ServerConfig;
 import org.webserver.container.Container;
 import org.webserver.exception.InternalServerException;
+import org.webserver.http.request.HttpRequest;
 import org.webserver.http.session.ExpiredSessionCleaner;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
@@ -21,24 +22,28 @@ public class Server {
     private static final Logger logger = Logger.getLogger(Server.class.getPackageName());
     /** 轮询线程数量（Tomcat: Math.min(2, Runtime.getRuntime().availableProcessors())）*/
     private final int pollerThreadCount = Integer.parseInt(System.getProperty(ServerConfig.POLLER_THREAD_COUNT));
+    /** Acceptor 线程数 */
+    private final int acceptorThreadCount = Integer.getInteger(ServerConfig.ACCEPTOR_THREAD_COUNT, 1);
+    /** 是否由轮询线程接收连接 */
+    private final boolean acceptOnPoller = Boolean.getBoolean(ServerConfig.ACCEPT_ON_POLLER);
     /** 容器类，保存 Session 和 控制器方法 */
     private Container container;
     /** 请求处理器，用于处理读就绪的连接 */
     private RequestProcessor requestProcessor;
-    /** 服务器Socket */
-    private ServerSocketChannel server;
-    /** 监听器，监听客户端连接，守护线程*/
-    private Acceptor acceptor; // 接收客户端连接
+    /**
+     * 服务器Socket：系统支持 SO_REUSEPORT 时，每个 Acceptor（或轮询线程）各自绑定一个，
+     * 由内核将新连接分散到各个 ServerSocketChannel 上，否则只有一个，由所有 Acceptor（或轮询线程）共享
+     */
+    private List<ServerSocketChannel> serverChannels;
     /** 监听的端口 */
     private volatile int port;
     /** 服务器是否还在运行 */
     private volatile boolean isRunning = true;
     /** 轮询线程，监听客户端发来的数据 */
     private List<Poller> pollers;
-    /** 索引，循环将新连接分配给轮询线程 */
-    private final AtomicInteger nextPollerIndex = new AtomicInteger(0);
-    /** 守护线程，清理过期的连接（HTTP长连接） */
-    private ExpiredConnectionCleaner connectionCleaner;
+    /** 新连接分配给轮询线程的策略 */
+    private final PollerAssignment pollerAssignment = PollerAssignment.of(
+            System.getProperty(ServerConfig.POLLER_ASSIGNMENT, PollerAssignment.ROUND_ROBIN));
 
     /**
      * 启动服务器
@@ -48,18 +53,18 @@ public class Server {
         this.port = port;
 
         try {
-            // 初始化ServerSocketChannel
-            initServerSocket(port);
-            // 初始化轮询线程
-            initPollers();
-            // 初始化Acceptor并异步监听
-            initAcceptor();
-            // 初始化过期连接清理器
-            initExpiredConnectionCleaner();
             // 初始化容器
             initContainer();
             // 初始化请求处理器
             initRequestProcessor();
+            // 初始化ServerSocketChannel
+            initServerSocket(port);
+            // 初始化轮询线程
+            initPollers();
+            // 初始化Acceptor并异步监听，在最后启动，保证接收到的连接能够被处理
+            if (!acceptOnPoller) {
+                initAcceptors();
+            }
             logger.info("服务启动成功");
         } catch (IOException | InternalServerException e) {
             logger.severe("服务器启动失败：" + e.getMessage());
@@ -72,17 +77,34 @@ public class Server {
 // ============== 初始化方法开始 ==============
     private void initServerSocket(int port) throws IOException {
         logger.info(String.format("监听 %s 端口", System.getProperty(ServerConfig.PORT)));
-        this.server = ServerSocketChannel.open();
-        this.server.bind(new InetSocketAddress(port));
-        this.server.configureBlocking(true); // 阻塞监听客户端连接
+        this.serverChannels = new ArrayList<>();
+        int listenerCount = acceptOnPoller ? pollerThreadCount : acceptorThreadCount;
+        ServerSocketChannel first = ServerSocketChannel.open();
+        boolean reusePort = listenerCount > 1
+                && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        if (!reusePort && listenerCount > 1) {
+            logger.info("系统不支持 SO_REUSEPORT，所有线程共享一个 ServerSocketChannel");
+        }
+        for (int i = 0; i < (reusePort ? listenerCount : 1); i++) {
+            ServerSocketChannel channel = i == 0 ? first : ServerSocketChannel.open();
+            if (reusePort) {
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            channel.bind(new InetSocketAddress(port));
+            // Acceptor 阻塞监听客户端连接，轮询线程通过 selector 非阻塞地接收连接
+            channel.configureBlocking(!acceptOnPoller);
+            serverChannels.add(channel);
+        }
     }
 
-    private void initAcceptor() {
-        logger.info("启动连接监听器");
-        this.acceptor = new Acceptor(this);
-        Thread thread = new Thread(this.acceptor, "Acceptor");
-        thread.setDaemon(true); // 设置为守护线程
-        thread.start();
+    private void initAcceptors() {
+        logger.info(String.format("启动连接监听器，个数（%s）", acceptorThreadCount));
+        for (int i = 0; i < acceptorThreadCount; i++) {
+            Acceptor acceptor = new Acceptor(this, serverChannels.get(i % serverChannels.size()));
+            Thread thread = new Thread(acceptor, "Acceptor-" + i);
+            thread.setDaemon(true); // 设置为守护线程
+            thread.start();
+        }
     }
 
     private void initPollers() throws IOException {
@@ -91,6 +113,9 @@ public class Server {
         for (int i = 0; i < pollerThreadCount; i++) {
             String pollerName = "Poller-" + i;
             Poller poller = new Poller(pollerName, this);
+            if (acceptOnPoller) { // 在轮询线程启动前注册，新连接由接收它的轮询线程监听
+                poller.listen(serverChannels.get(i % serverChannels.size()));
+            }
             Thread pollerThread = new Thread(poller, pollerName);
             pollerThread.setDaemon(true);
             pollerThread.start();
@@ -98,12 +123,6 @@ public class Server {
         }
     }
 
-    private void initExpiredConnectionCleaner() {
-        logger.info(String.format("启动过期连接清理器，周期（%s）", System.getProperty(ServerConfig.CONNECTION_CLEANING_CYCLE)));
-        this.connectionCleaner = new ExpiredConnectionCleaner(pollers);
-        this.connectionCleaner.start();
-    }
-
     private void initContainer() throws InternalServerException {
         logger.info("启动容器");
         this.container = new Container();
@@ -119,11 +138,12 @@ public class Server {
         isRunning = false;
         logger.info("服务器关闭");
         this.requestProcessor.shutdown();
-        this.connectionCleaner.shutDown();
         this.container.close();
-        try {
-            server.close();
-        } catch (IOException ignore) {
+        for (ServerSocketChannel channel : serverChannels) {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
         }
         // 其他线程都为守护线程
     }
@@ -144,24 +164,39 @@ public class Server {
     }
 
     /**
-     * Acceptor 使用，监听新连接
+     * 轮询线程，用于统计
      */
-    SocketChannel accept() throws IOException {
-        return server.accept();
+    List<Poller> getPollers() {
+        return pollers;
     }
 
     /**
-     * 将客户端连接注册到轮询线程，轮询多个 Poller 线程，负载均衡
+     * 将客户端连接注册到轮询线程，按配置的策略在多个 Poller 线程之间负载均衡
      */
     void registerToPoller(SocketChannel client) {
-        // nextPollerIndex 加到最大值溢出
-        this.pollers.get(Math.abs(nextPollerIndex.getAndIncrement()) % pollerThreadCount).register(client, true);
+        pollerAssignment.select(this.pollers).register(client);
+    }
+
+    /**
+     * 处理客户端连接上读取到的完整请求，交给请求处理器
+     * @return 请求处理器是否接收了该请求，过载时不接收
+     */
+    boolean processClient(SocketWrapper socketWrapper, HttpRequest request) {
+        return this.requestProcessor.process(socketWrapper, request);
+    }
+
+    /**
+     * 在轮询线程中处理不会阻塞的请求
+     * @return 需要交给请求处理器的线程池处理的请求，没有时返回 null
+     */
+    HttpRequest processInline(SocketWrapper socketWrapper, HttpRequest request) {
+        return this.requestProcessor.processInline(socketWrapper, request);
     }
 
     /**
-     * 处理读就绪的客户端连接，交给请求处理器
+     * 请求处理器，用于统计
      */
-    void processClient(SocketWrapper socketWrapper) {
-        this.requestProcessor.process(socketWrapper);
+    RequestProcessor getRequestProcessor() {
+        return requestProcessor;
     }
 }
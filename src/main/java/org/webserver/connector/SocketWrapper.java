@@ -1,43 +1,402 @@
 package org.webserver.connector;
 
+import org.webserver.buffer.AdaptiveBufferSizer;
+import org.webserver.buffer.BufferPool;
+import org.webserver.exception.HttpRequestParseException;
+import org.webserver.http.request.HttpRequest;
+import org.webserver.http.request.HttpRequestParser;
+import org.webserver.http.response.HttpResponse;
+
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 客户端socket的包装器
  */
 public class SocketWrapper {
+    /** 预先编码的数据不需要释放 */
+    private static final Runnable NO_RELEASE = () -> {};
+    /**
+     * 写队列中未写出的数据超过该值（字节）时暂停读取和处理管线化的请求，写完后再恢复，
+     * 避免客户端只发送请求、不读取响应时写队列无限增长
+     */
+    private static final int READ_PAUSE_THRESHOLD = 64 * 1024;
     private SocketChannel client;
     private Poller poller;
-    private long lastCommutationTime;
+    /** 在所属 Poller 的时间轮中的条目，用于超时管理 */
+    private final TimingWheel.Entry<SocketWrapper> timeoutEntry = new TimingWheel.Entry<>(this);
+    /** 是否正在计算请求头读取超时 */
+    private boolean headerTimerStarted;
+    /** 该连接上已处理的请求数 */
+    private int requestCount;
+    /** 连接在 selector 上注册后得到的 SelectionKey，整个连接期间不变 */
+    private SelectionKey selectionKey;
+    /** 注册或恢复监听该连接时放入 Poller 事件队列的事件，重复使用 */
+    private final Poller.PollerEvent pollerEvent;
+    /**
+     * 读缓冲区（写模式），读取时从 BufferPool 借出，数据被解析器消费完后立即归还，
+     * 因此空闲的长连接不占用缓冲区；只有管线化请求剩余的数据会暂时保留在其中
+     */
+    private ByteBuffer readBuffer;
+    /** 根据最近读取的数据量调整读缓冲区大小 */
+    private final AdaptiveBufferSizer readBufferSizer = new AdaptiveBufferSizer();
+    /** 该连接的请求解析器，保存未读完的请求的解析进度 */
+    private final HttpRequestParser parser = new HttpRequestParser();
+    /**
+     * 写队列：socket 的发送缓冲区满时，未写完的响应保存在这里，由 Poller 监听写事件后继续写入，
+     * 工作线程和 Poller 线程都会访问，通过 lock 加锁
+     */
+    private final Deque<OutboundEntry> outboundQueue = new ArrayDeque<>();
+    /**
+     * 保护写队列及写相关的状态；不使用 synchronized：虚拟线程在 synchronized 中等待（awaitDrain）会占住载体线程
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** 写出数据或连接关闭时通知等待写队列排空的工作线程 */
+    private final Condition drained = lock.newCondition();
+    /** 写队列中的数据写完后关闭连接 */
+    private boolean closeAfterFlush;
+    /**
+     * 工作线程正在流式发送响应，并请求 Poller 继续写出积压的数据：此时只监听写事件，不监听读事件，
+     * 直到工作线程处理完请求、恢复监听
+     */
+    private boolean streaming;
+    /** 因写队列积压暂停了读取，缓冲区中可能还有未处理的管线化请求，由 Poller 在写队列写完后恢复 */
+    private boolean readPaused;
+    /** 最近一次写出数据的时间，流式发送响应时工作线程也会直接写出，Poller 据此判断连接是否超时 */
+    private volatile long lastWriteTime;
 
     SocketWrapper(SocketChannel client, Poller poller) {
         this.client = client;
         this.poller = poller;
-        this.lastCommutationTime = System.currentTimeMillis();
+        this.pollerEvent = poller.new PollerEvent(this);
+    }
+
+    /**
+     * 从客户端读取数据并尝试解析出一个完整的请求，由 Poller 在读就绪时调用
+     * @return 完整的请求，数据还不完整时返回 null
+     * @throws EOFException 客户端已关闭连接
+     */
+    HttpRequest readRequest() throws IOException, HttpRequestParseException {
+        if (readBuffer == null) {
+            readBuffer = BufferPool.shared().acquire(readBufferSizer.nextSize());
+        }
+        int n = client.read(readBuffer);
+        if (n < 0) {
+            throw new EOFException("客户端已关闭连接");
+        }
+        readBufferSizer.record(n);
+        return parseRequest();
+    }
+
+    /**
+     * 从已读取但还未解析的数据中解析出下一个完整的请求，用于处理管线化的请求
+     * @return 完整的请求，剩余数据不足一个请求时返回 null
+     */
+    HttpRequest parseRequest() throws HttpRequestParseException {
+        if (readBuffer == null) {
+            return null;
+        }
+        readBuffer.flip();
+        try {
+            return parser.parse(readBuffer);
+        } finally {
+            if (readBuffer.hasRemaining()) {
+                readBuffer.compact();
+            } else {
+                releaseReadBuffer();
+            }
+        }
+    }
+
+    private void releaseReadBuffer() {
+        if (readBuffer != null) {
+            BufferPool.shared().release(readBuffer);
+            readBuffer = null;
+        }
+    }
+
+    /**
+     * 将响应加入写队列并尝试写入，不会阻塞，写不完的部分由 Poller 在写就绪时继续写
+     */
+    void write(HttpResponse response) throws IOException {
+        lock.lock();
+        try {
+            outboundQueue.offerLast(OutboundEntry.of(response));
+            flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写入预先编码的数据（如 PreEncodedResponse），数据不需要释放
+     */
+    void write(ByteBuffer data) throws IOException {
+        lock.lock();
+        try {
+            outboundQueue.offerLast(new OutboundEntry(new ByteBuffer[]{data}, NO_RELEASE));
+            flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写入流式发送的一段响应数据，写完或连接关闭后调用 releaser
+     */
+    void write(ByteBuffer[] data, Runnable releaser) throws IOException {
+        lock.lock();
+        try {
+            if (!client.isOpen()) {
+                releaser.run();
+                throw new ClosedChannelException();
+            }
+            outboundQueue.offerLast(new OutboundEntry(data, releaser));
+            flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按顺序写入写队列中的数据，直到写完或 socket 的发送缓冲区已满；写出数据后唤醒等待的工作线程
+     * @return 写队列中的数据是否已全部写完
+     */
+    boolean flush() throws IOException {
+        lock.lock();
+        try {
+            OutboundEntry entry;
+            while ((entry = outboundQueue.peekFirst()) != null) {
+                if (entry.writeTo(client) > 0) {
+                    lastWriteTime = System.currentTimeMillis();
+                }
+                if (!entry.isDone()) { // 发送缓冲区已满
+                    return false;
+                }
+                outboundQueue.pollFirst().release();
+            }
+            return true;
+        } finally {
+            drained.signalAll();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待写队列中未写出的数据不超过 maxPendingBytes（背压），由流式发送响应的工作线程调用，
+     * 等待期间由 Poller 监听写事件继续写出；客户端一直不读时连接超时关闭，等待随之结束
+     * @throws ClosedChannelException 连接已关闭
+     */
+    void awaitDrain(long maxPendingBytes) throws IOException {
+        lock.lock();
+        try {
+            boolean resumed = false;
+            while (client.isOpen() && pendingBytes() > maxPendingBytes) {
+                if (!resumed) {
+                    streaming = true;
+                    poller.resume(this);
+                    resumed = true;
+                }
+                try {
+                    drained.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待写出数据时被中断");
+                }
+            }
+            if (!client.isOpen()) {
+                throw new ClosedChannelException();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long pendingBytes() {
+        long pending = 0;
+        for (OutboundEntry entry : outboundQueue) {
+            pending += entry.remaining();
+        }
+        return pending;
+    }
+
+    /**
+     * 处理完一个请求后调用：写队列中未写出的数据超过 READ_PAUSE_THRESHOLD 时暂停读取，
+     * 调用者不再解析后续的管线化请求，由 Poller 在写完后继续
+     * @return 是否已暂停
+     */
+    boolean pauseReadingIfBacklogged() {
+        lock.lock();
+        try {
+            if (pendingBytes() > READ_PAUSE_THRESHOLD) {
+                readPaused = true;
+            }
+            return readPaused;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 由 Poller 调用：暂停了读取的连接写队列已写完、且没有工作线程在处理时恢复读取
+     * @return 是否恢复了读取（缓冲区中可能还有未处理的管线化请求）
+     */
+    boolean resumeReading() {
+        lock.lock();
+        try {
+            if (!readPaused || streaming || !outboundQueue.isEmpty()) {
+                return false;
+            }
+            readPaused = false;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 工作线程处理完请求，恢复监听前调用
+     */
+    void endStreaming() {
+        lock.lock();
+        try {
+            this.streaming = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isStreaming() {
+        lock.lock();
+        try {
+            return streaming;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    /**
+     * 写队列中是否还有未写完的数据
+     */
+    boolean hasPendingWrites() {
+        lock.lock();
+        try {
+            return !outboundQueue.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写队列中的数据写完后关闭连接
+     * @return 数据已写完，连接已关闭
+     */
+    boolean closeAfterFlush() throws IOException {
+        lock.lock();
+        try {
+            this.closeAfterFlush = true;
+            if (outboundQueue.isEmpty()) {
+                close();
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isCloseAfterFlush() {
+        lock.lock();
+        try {
+            return closeAfterFlush;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 需要监听的事件：有未写完的数据时监听写事件；数据写完就要关闭的连接、正在流式发送响应的连接、
+     * 暂停了读取或写队列积压的连接不监听读事件
+     */
+    int interestOps() {
+        lock.lock();
+        try {
+            int ops = closeAfterFlush || streaming || readPaused || pendingBytes() > READ_PAUSE_THRESHOLD
+                    ? 0 : SelectionKey.OP_READ;
+            return outboundQueue.isEmpty() ? ops : ops | SelectionKey.OP_WRITE;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * 关闭Socket
      */
     void close() throws IOException {
-        poller.cancelReadListening(this); // 取消监听该连接
-        poller.getClients().remove(this.getClient());
-        client.close(); // 关闭连接
+        lock.lock();
+        try {
+            poller.getClients().remove(this.getClient());
+            client.close(); // 关闭连接，同时会取消在 selector 上的注册
+            releaseReadBuffer();
+            while (!outboundQueue.isEmpty()) {
+                outboundQueue.pollFirst().release();
+            }
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * 返回上次通信的时间戳
+     * 是否正在读取某个请求的请求行或请求头
      */
-    long getLastCommutationTime() {
-        return lastCommutationTime;
+    boolean isReadingHeader() {
+        return parser.isReadingHeader();
+    }
+
+    SelectionKey getSelectionKey() {
+        return selectionKey;
+    }
+
+    void setSelectionKey(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    Poller.PollerEvent getPollerEvent() {
+        return pollerEvent;
+    }
+
+    TimingWheel.Entry<SocketWrapper> getTimeoutEntry() {
+        return timeoutEntry;
+    }
+
+    boolean isHeaderTimerStarted() {
+        return headerTimerStarted;
+    }
+
+    void setHeaderTimerStarted(boolean headerTimerStarted) {
+        this.headerTimerStarted = headerTimerStarted;
     }
 
     /**
-     * 设置上次通信的时间戳
+     * 该连接上处理的请求数加一
+     * @return 包括当前请求在内已处理的请求数
      */
-    void setLastCommutationTime(long lastCommutationTime) {
-        this.lastCommutationTime = lastCommutationTime;
+    int incrementRequestCount() {
+        return ++requestCount;
     }
 
     /**
@@ -0,0 +1,131 @@
+package org.webserver.connector;
+
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮，用于连接的超时管理。
+ *
+ * 时间被划分为长度为 tickDuration 的格子，到期时间落在同一格子的条目用双向链表串在一起，
+ * 添加、刷新、取消超时都是 O(1) 的，推进时间轮时只检查到期的格子，不需要遍历所有连接。
+ * 条目由调用方持有并复用（每个连接一个），刷新超时不产生新对象。
+ * 非线程安全，只能由所属的 Poller 线程访问。
+ */
+class TimingWheel<T> {
+    /**
+     * 时间轮中的条目
+     */
+    static final class Entry<T> {
+        private final T owner;
+        private Entry<T> prev;
+        private Entry<T> next;
+        /** 到期的格子序号 */
+        private long deadlineTick;
+        private boolean scheduled;
+
+        Entry(T owner) {
+            this.owner = owner;
+        }
+
+        boolean isScheduled() {
+            return scheduled;
+        }
+    }
+
+    /** 每个格子的链表头（哨兵） */
+    private final Entry<T>[] buckets;
+    private final int mask;
+    private final long tickDuration;
+    private final long startTime;
+    /** 已推进到的格子序号 */
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(int wheelSize, long tickDuration, long startTime) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize 必须是 2 的幂：" + wheelSize);
+        }
+        this.buckets = new Entry[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            Entry<T> head = new Entry<>(null);
+            head.prev = head.next = head;
+            buckets[i] = head;
+        }
+        this.mask = wheelSize - 1;
+        this.tickDuration = tickDuration;
+        this.startTime = startTime;
+    }
+
+    /**
+     * 设置条目在 delay 毫秒后到期，已设置过的话重新设置
+     */
+    void schedule(Entry<T> entry, long delay, long now) {
+        cancel(entry);
+        if (size == 0) { // 时间轮为空时 Poller 不会推进时间轮，先追上当前时间
+            currentTick = Math.max(currentTick, (now - startTime) / tickDuration);
+        }
+        // 向上取整，保证不会提前到期
+        long deadlineTick = (now + delay - startTime + tickDuration - 1) / tickDuration;
+        entry.deadlineTick = Math.max(deadlineTick, currentTick + 1);
+        Entry<T> head = buckets[(int) (entry.deadlineTick & mask)];
+        entry.prev = head.prev;
+        entry.next = head;
+        head.prev.next = entry;
+        head.prev = entry;
+        entry.scheduled = true;
+        size++;
+    }
+
+    /**
+     * 取消条目的超时
+     */
+    void cancel(Entry<T> entry) {
+        if (!entry.scheduled) {
+            return;
+        }
+        entry.prev.next = entry.next;
+        entry.next.prev = entry.prev;
+        entry.prev = entry.next = null;
+        entry.scheduled = false;
+        size--;
+    }
+
+    /**
+     * 将时间轮推进到 now，对到期的条目调用 onExpire（调用前已从时间轮中移除），
+     * onExpire 中只能取消或重新调度当前条目，不能操作其他条目
+     */
+    void advance(long now, Consumer<T> onExpire) {
+        long targetTick = (now - startTime) / tickDuration;
+        while (currentTick < targetTick) {
+            currentTick++;
+            if (size == 0) { // 没有条目，直接跳到目标格子
+                currentTick = targetTick;
+                break;
+            }
+            Entry<T> head = buckets[(int) (currentTick & mask)];
+            for (Entry<T> entry = head.next; entry != head; ) {
+                Entry<T> next = entry.next;
+                // 同一个格子中可能有若干圈之后才到期的条目
+                if (entry.deadlineTick <= currentTick) {
+                    cancel(entry);
+                    onExpire.accept(entry.owner);
+                }
+                entry = next;
+            }
+        }
+    }
+
+    /**
+     * 距离下一个格子到期的毫秒数，Poller 以此作为 select 的超时时间，时间轮为空时返回 0（无需超时）
+     */
+    long nextTickDelay(long now) {
+        if (size == 0) {
+            return 0;
+        }
+        return Math.max(1, startTime + (currentTick + 1) * tickDuration - now);
+    }
+
+    int size() {
+        return size;
+    }
+}
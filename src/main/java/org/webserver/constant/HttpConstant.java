@@ -9,11 +9,26 @@ public class HttpConstant {
     public static final String POST_UPLOAD_FILE = "multipart/form-data";
 
     public static final String CONNECTION = "Connection";
+    public static final String KEEP_ALIVE = "Keep-Alive";
     public static final String CONTENT_TYPE = "Content-Type";
     public static final String CONTENT_LENGTH = "Content-Length";
     public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String TRANSFER_ENCODING = "Transfer-Encoding";
     public static final String DATE = "Date";
     public static final String LOCATION = "Location";
+    public static final String RETRY_AFTER = "Retry-After";
+    public static final String ETAG = "ETag";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String RANGE = "Range";
+    public static final String IF_RANGE = "If-Range";
+    public static final String CONTENT_RANGE = "Content-Range";
+    public static final String ACCEPT_RANGES = "Accept-Ranges";
+    public static final String MULTIPART_BYTERANGES = "multipart/byteranges";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String VARY = "Vary";
     public static final String JSESSIONID = "JSESSIONID";
     public static final String SET_COOKIE = "Set-Cookie";
     public static final String COOKIE = "Cookie";
@@ -11,14 +11,52 @@ public class ServerConfig {
     /** 毫秒 */
     public static final String CONNECTION_EXPIRY_TIME = "CONNECTION_EXPIRY_TIME";
     /** 毫秒 */
-    public static final String CONNECTION_CLEANING_CYCLE = "CONNECTION_CLEANING_CYCLE";
+    public static final String HEADER_READ_TIMEOUT = "HEADER_READ_TIMEOUT";
+    /** 每个持久连接最多处理的请求数 */
+    public static final String KEEP_ALIVE_MAX_REQUESTS = "KEEP_ALIVE_MAX_REQUESTS";
     /** 毫秒 */
     public static final String SESSION_CLEANING_CYCLE = "SESSION_CLEANING_CYCLE";
     /** 毫秒 */
     public static final String SESSION_EXPIRY_TIME = "SESSION_EXPIRY_TIME";
     /** 轮询线程池大小 */
     public static final String POLLER_THREAD_COUNT = "POLLER_THREAD_COUNT";
+    /** 新连接分配给轮询线程的策略：round-robin, least-connections, least-busy */
+    public static final String POLLER_ASSIGNMENT = "POLLER_ASSIGNMENT";
+    /** 接收连接的 Acceptor 线程数 */
+    public static final String ACCEPTOR_THREAD_COUNT = "ACCEPTOR_THREAD_COUNT";
+    /** 是否由轮询线程接收连接（OP_ACCEPT），代替 Acceptor 线程 */
+    public static final String ACCEPT_ON_POLLER = "ACCEPT_ON_POLLER";
     /** 请求处理器线程池大小 */
     public static final String REQUEST_PROCESSOR_THREAD_COUNT = "REQUEST_PROCESSOR_THREAD_COUNT";
+    /** 是否在轮询线程中直接处理不会阻塞的请求 */
+    public static final String INLINE_EXECUTION = "INLINE_EXECUTION";
+    /** 等待处理的请求数上限 */
+    public static final String REQUEST_QUEUE_CAPACITY = "REQUEST_QUEUE_CAPACITY";
+    /** 毫秒，请求等待处理的最长时间 */
+    public static final String REQUEST_QUEUE_MAX_WAIT = "REQUEST_QUEUE_MAX_WAIT";
+    /** 是否使用虚拟线程处理请求（JDK 21 及以上） */
+    public static final String REQUEST_PROCESSOR_VIRTUAL_THREADS = "REQUEST_PROCESSOR_VIRTUAL_THREADS";
+    /** 静态资源缓存的总字节数上限，不大于 0 时不缓存 */
+    public static final String STATIC_CACHE_MAX_BYTES = "STATIC_CACHE_MAX_BYTES";
+    /** 内容被缓存的单个静态文件的大小上限（字节） */
+    public static final String STATIC_CACHE_MAX_FILE_SIZE = "STATIC_CACHE_MAX_FILE_SIZE";
+    /** 毫秒，检查缓存的静态文件是否被修改的最小间隔 */
+    public static final String STATIC_CACHE_CHECK_INTERVAL = "STATIC_CACHE_CHECK_INTERVAL";
+    /** 启动时是否预先加载静态资源 */
+    public static final String STATIC_CACHE_PRELOAD = "STATIC_CACHE_PRELOAD";
+    /** 静态文件内容是否缓存在直接缓冲区中 */
+    public static final String STATIC_CACHE_DIRECT = "STATIC_CACHE_DIRECT";
+    /** 静态资源按路径匹配的 Cache-Control 规则 */
+    public static final String STATIC_CACHE_CONTROL = "STATIC_CACHE_CONTROL";
+    /** 是否对响应进行 gzip 压缩 */
+    public static final String COMPRESSION = "COMPRESSION";
+    /** 压缩的最小响应体长度（字节） */
+    public static final String COMPRESSION_MIN_SIZE = "COMPRESSION_MIN_SIZE";
+    /** 压缩级别 */
+    public static final String COMPRESSION_LEVEL = "COMPRESSION_LEVEL";
+    /** 允许压缩的 MIME 类型，以逗号分隔 */
+    public static final String COMPRESSION_MIME_TYPES = "COMPRESSION_MIME_TYPES";
+    /** 响应体缓冲区大小（字节），超过时以 chunked 编码分块发送 */
+    public static final String RESPONSE_BUFFER_SIZE = "RESPONSE_BUFFER_SIZE";
 
 }
@@ -0,0 +1,132 @@
+package org.webserver.container;
+
+import org.webserver.exception.InternalServerException;
+import org.webserver.http.request.HttpRequest;
+import org.webserver.util.ReflectUtil;
+import org.webserver.util.StringUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.function.Function;
+
+/**
+ * 从请求参数构造实体对象，支持级联属性，如 user.info.val 赋值给 user 的 info 属性的 val 属性。
+ *
+ * 每个类的绑定计划（构造函数、各属性的 setter 和类型转换）在第一次使用时生成，缓存在 ClassValue 中；
+ * 每个绑定位置（类和前缀）的级联参数名预先拼接好，嵌套的实体在请求中有对应前缀的参数时才构造，没有时为 null
+ */
+final class BeanBinder {
+    private static final ClassValue<Plan> PLANS = new ClassValue<>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+            return new Plan(type);
+        }
+    };
+
+    private final Plan plan;
+    /** 各属性的级联参数名，如 user.name；嵌套的实体为前缀，如 user.info. */
+    private final String[] names;
+    /** 嵌套实体的绑定，第一次用到时创建（类型可能引用自身，不能预先全部创建） */
+    private final BeanBinder[] nested;
+
+    /**
+     * @param prefix 级联赋值的前缀，如：user.
+     */
+    BeanBinder(Class<?> type, String prefix) {
+        this.plan = PLANS.get(type);
+        this.names = new String[plan.names.length];
+        this.nested = new BeanBinder[plan.names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = plan.converters[i] != null ? prefix + plan.names[i] : prefix + plan.names[i] + ".";
+        }
+    }
+
+    Object bind(HttpRequest request) throws InternalServerException {
+        if (plan.error != null) {
+            throw new InternalServerException(plan.error);
+        }
+        try {
+            Object bean = (Object) plan.constructor.invokeExact();
+            for (int i = 0; i < names.length; i++) {
+                if (plan.converters[i] != null) { // 简单类型
+                    String value = request.getParameter(names[i]);
+                    if (value != null) {
+                        plan.setters[i].invokeExact(bean, plan.converters[i].apply(value));
+                    }
+                } else if (request.hasParameterWithPrefix(names[i])) { // 嵌套的实体
+                    plan.setters[i].invokeExact(bean, nested(i).bind(request));
+                }
+            }
+            return bean;
+        } catch (InternalServerException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InternalServerException("实体类" + plan.type.getName() + "赋值失败：" + e);
+        }
+    }
+
+    private BeanBinder nested(int i) {
+        BeanBinder binder = nested[i];
+        if (binder == null) { // 并发时可能重复创建，结果相同
+            binder = new BeanBinder(plan.types[i], names[i]);
+            nested[i] = binder;
+        }
+        return binder;
+    }
+
+    /**
+     * 一个类的绑定计划：非静态的属性，及其 setter 和类型转换
+     */
+    private static final class Plan {
+        final Class<?> type;
+        /** 类不符合规范（没有 public 的无参构造函数或属性没有 setter）时的错误信息 */
+        String error;
+        /** ()Object */
+        MethodHandle constructor;
+        String[] names = new String[0];
+        Class<?>[] types;
+        /** (Object, Object)void */
+        MethodHandle[] setters;
+        /** 简单类型属性的类型转换，嵌套的实体为 null */
+        Function<String, Object>[] converters;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Plan(Class<?> type) {
+            this.type = type;
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                constructor = lookup.unreflectConstructor(type.getConstructor())
+                        .asType(MethodType.methodType(Object.class));
+                Field[] fields = type.getDeclaredFields();
+                int count = 0;
+                for (Field field : fields) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        count++;
+                    }
+                }
+                String[] names = new String[count];
+                types = new Class<?>[count];
+                setters = new MethodHandle[count];
+                converters = new Function[count];
+                int i = 0;
+                for (Field field : fields) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    names[i] = field.getName();
+                    types[i] = field.getType();
+                    setters[i] = lookup.unreflect(type.getMethod(StringUtil.setterName(field.getName()), field.getType()))
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                    converters[i] = ReflectUtil.isSimpleType(field.getType()) ? ReflectUtil.converter(field.getType()) : null;
+                    i++;
+                }
+                this.names = names;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                this.error = "实体类" + type.getName() + "不符合规范";
+            }
+        }
+    }
+}
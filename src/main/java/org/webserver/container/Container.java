@@ -3,7 +3,6 @@ package org.webserver.container;
 import org.webserver.constant.ServerConfig;
 import org.webserver.exception.HttpMethodNotSupportedException;
 import org.webserver.exception.InternalServerException;
-import org.webserver.http.HttpMethod;
 import org.webserver.http.request.HttpRequest;
 import org.webserver.http.response.HttpResponse;
 import org.webserver.http.session.ExpiredSessionCleaner;
@@ -21,7 +20,8 @@ public class Container {
     private final long SESSION_EXPIRY_TIME = Long.parseLong(System.getProperty(ServerConfig.SESSION_EXPIRY_TIME));
     private final static Logger logger = Logger.getLogger(Container.class.getPackageName());
     private final Map<String, HttpSession> sessions = new ConcurrentHashMap<>(); // 线程安全
-    private Map<String, TargetMethod> methodMap;
+    /** 请求路由，启动时由 ControllerScanner 构建 */
+    private Router router;
     private ExpiredSessionCleaner sessionCleaner;
 
     /**
@@ -29,25 +29,43 @@ public class Container {
      */
     public void init() throws InternalServerException {
         logger.info("初始化容器类");
-        this.methodMap = ControllerScanner.scan();
+        this.router = ControllerScanner.scan();
         initExpiredSessionCleaner();
     }
 
     /**
-     * 处理请求
+     * 查找请求路径映射的路由，每个请求只在解析后查找一次（HttpRequest#setRoute），
+     * 之后判断能否在轮询线程中处理、调用处理方法都使用该结果
+     * @return 没有映射时（可能是静态资源）返回 null
      */
-    public HttpResponse handle(HttpRequest request) throws HttpMethodNotSupportedException{
-        int idx = request.getRequestURI().indexOf('?');
-        String target = request.getRequestURI().substring(0, idx == -1 ? request.getRequestURI().length() : idx);
+    public Router.Route route(HttpRequest request) {
+        return router.find(request.getRequestURI());
+    }
+
+    /**
+     * 处理请求，结果写入 response
+     * @param route 请求映射的路由（route 方法的结果）
+     * @return response，请求的不是映射的路径（可能是静态资源）时返回 null
+     */
+    public HttpResponse handle(HttpRequest request, Router.Route route, HttpResponse response) throws HttpMethodNotSupportedException{
         // 请求的可能是静态资源
-        if (methodMap.get(target) == null) {
+        if (route == null) {
             return null;
         }
+        TargetMethod targetMethod = route.handler(request.getMethod());
         // 方法不支持
-        if(!methodMap.get(target).getHttpMethodType().equals(HttpMethod.ANY) && !request.getMethod().equals(methodMap.get(target).getHttpMethodType())) {
+        if (targetMethod == null) {
             throw new HttpMethodNotSupportedException();
         }
-        return methodMap.get(target).invoke(request);
+        if (route.hasVariables()) {
+            request.setPathVariables(route.variables(request.getRequestURI()));
+        }
+        try {
+            targetMethod.invoke(request, response);
+        } catch (Throwable e) {
+            HandlerExceptionMapper.map(request, response, targetMethod, e);
+        }
+        return response;
     }
 
     private void initExpiredSessionCleaner() {
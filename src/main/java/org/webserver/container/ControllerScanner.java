@@ -10,23 +10,19 @@ import org.webserver.util.ReflectUtil;
 import java.io.*;
 import java.lang.reflect.Method;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Logger;
 
 public class ControllerScanner {
     private static final Logger logger = Logger.getLogger(ControllerScanner.class.getPackageName());
-    private static final String CONTROLLER_ROOT_PATH =
-            ControllerScanner.class.getResource("/")
-            .toString().substring(6); //substring(6)去掉开头的file://
+    private static final String CONTROLLER_ROOT_PATH = IOUtil.classpathDirectory("/");
 
     /**
      * 扫描控制器
      */
-    static Map<String, TargetMethod> scan() throws InternalServerException {
+    static Router scan() throws InternalServerException {
         logger.info("开始扫描控制器");
-        Map<String, TargetMethod> map = new HashMap<>();
+        Router router = new Router();
         try {
             IOUtil.traverseDirectory(Path.of(CONTROLLER_ROOT_PATH), path -> {
                 String className = getClassName(path);
@@ -36,7 +32,7 @@ public class ControllerScanner {
                     if (ReflectUtil.annotatedWith(clazz, Controller.class)) {
                         logger.info("扫描到控制器 " + clazz.getName());
                         // 解析 requestMapping 映射
-                        parseRequestMapping(map, clazz);
+                        parseRequestMapping(router, clazz);
                     }
                 } catch (ClassNotFoundException e) {
                     logger.info("加载类时异常：" + e.getMessage());
@@ -47,7 +43,7 @@ public class ControllerScanner {
             logger.warning("加载类失败（IO错误）：" + e.getMessage());
             throw new InternalServerException("加载类失败（IO错误）：" + e.getMessage());
         }
-        return map;
+        return router;
     }
 
     private static String getClassName(Path path) {
@@ -60,7 +56,7 @@ public class ControllerScanner {
     /**
      * 解析控制器类的映射方法
      */
-    private static void parseRequestMapping(Map<String, TargetMethod> map, Class<?> clazz) {
+    private static void parseRequestMapping(Router router, Class<?> clazz) {
         Method[] methods = clazz.getMethods();
         Object controller;
         try {
@@ -85,20 +81,33 @@ public class ControllerScanner {
                     methodRequestMapping = "/" + methodRequestMapping;
                 }
                 HttpMethod methodType = method.getAnnotation(RequestMapping.class).method();
-                TargetMethod targetMethod = null;
+                TargetMethod targetMethod;
                 try {
                     targetMethod = new TargetMethod(controller, method, methodType);
-                } catch (Exception ignore) {}
-                map.put(baseRequestMapping + methodRequestMapping, targetMethod);
-                logger.info(String.format("发现请求映射：[ %s => %s]", baseRequestMapping + methodRequestMapping, targetMethod.getMethodDescriptor()));
+                } catch (IllegalAccessException | RuntimeException e) {
+                    logger.warning(String.format("无法访问处理方法 %s#%s，忽略：%s", clazz.getName(), method.getName(), e));
+                    continue;
+                }
+                String pattern = baseRequestMapping + methodRequestMapping;
+                try {
+                    TargetMethod previous = router.add(pattern, methodType, targetMethod);
+                    if (previous != null) {
+                        logger.warning(String.format("请求映射重复：[ %s %s ]，%s 替换了 %s", methodType, pattern,
+                                targetMethod.getMethodDescriptor(), previous.getMethodDescriptor()));
+                    }
+                } catch (IllegalArgumentException e) {
+                    logger.warning(e.getMessage() + "，忽略 " + targetMethod.getMethodDescriptor());
+                    continue;
+                }
+                logger.info(String.format("发现请求映射：[ %s %s => %s]", methodType, pattern, targetMethod.getMethodDescriptor()));
             }
         }
     }
 
 
     public static void main(String[] args) throws Exception {
-        Map<String, TargetMethod> map = scan();
-        System.out.println(map);
+        Router router = scan();
+        System.out.println(router);
 
     }
 }
@@ -0,0 +1,54 @@
+package org.webserver.container;
+
+import org.webserver.exception.InternalServerException;
+import org.webserver.exception.TemplateParseException;
+import org.webserver.http.request.HttpRequest;
+import org.webserver.http.response.HttpResponse;
+import org.webserver.http.response.HttpStatus;
+import org.webserver.util.ErrorResponseUtil;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * 处理方法（包括参数绑定、模板渲染）抛出的异常到错误响应的映射，记录日志并返回对应的错误页面。
+ * 响应头已提交（响应体已分块发送）时不能再返回错误页面，中止响应，关闭连接让客户端知道响应不完整
+ */
+final class HandlerExceptionMapper {
+    private static final Logger logger = Logger.getLogger(HandlerExceptionMapper.class.getPackageName());
+
+    private HandlerExceptionMapper() {
+    }
+
+    static void map(HttpRequest request, HttpResponse response, TargetMethod target, Throwable e) {
+        if (e instanceof VirtualMachineError) {
+            throw (VirtualMachineError) e;
+        }
+        // 丢弃已写入的部分响应体（刷新 Writer 时也可能提交响应头）
+        if (!response.isCommitted()) {
+            response.resetBuffer();
+        }
+        if (response.isCommitted()) {
+            if (e instanceof IOException) { // 通常是客户端断开了连接
+                logger.warning(String.format("分块发送响应失败（%s）：%s", request.getRequestURI(), e.getMessage()));
+            } else {
+                logger.severe(String.format("%s 处理请求（%s）出错，响应已提交，中止响应：%s",
+                        target.getMethodDescriptor(), request.getRequestURI(), e));
+                e.printStackTrace();
+            }
+            response.abort();
+            return;
+        }
+        if (e instanceof TemplateParseException) {
+            logger.severe("模板解析错误" + e.getMessage());
+            ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_500, "模板解析错误：" + e.getMessage());
+        } else if (e instanceof InternalServerException) {
+            logger.severe(e.getMessage());
+            ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_500, e.getMessage());
+        } else {
+            logger.severe(String.format("%s 处理请求（%s）出错：%s", target.getMethodDescriptor(), request.getRequestURI(), e));
+            ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_500, "处理请求出错");
+        }
+        e.printStackTrace();
+    }
+}
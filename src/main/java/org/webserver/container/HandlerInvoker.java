@@ -0,0 +1,13 @@
+package org.webserver.container;
+
+/**
+ * 调用控制器中的处理方法，扫描时由 HandlerInvokers 生成，调用时不检查访问权限，也不包装异常
+ */
+@FunctionalInterface
+interface HandlerInvoker {
+    /**
+     * @param args 按顺序绑定的参数，基本类型的参数为对应的包装类型
+     * @return 处理方法的返回值，void 方法返回 null
+     */
+    Object invoke(Object[] args) throws Throwable;
+}
@@ -0,0 +1,184 @@
+package org.webserver.container;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 生成 HandlerInvoker：
+ * - 参数不超过 MAX_LAMBDA_ARITY 个时，用 LambdaMetafactory 为处理方法生成一个函数式接口的实现类，
+ *   调用时直接调用处理方法，JIT 可以内联；参数需为对应的类型（基本类型为包装类型），不做拓宽转换
+ * - 否则（或无法生成时，如控制器的类加载器看不到这里的函数式接口）使用展开参数数组的 MethodHandle
+ * 处理方法抛出的异常（包括受检异常）都原样抛出
+ */
+final class HandlerInvokers {
+    static final int MAX_LAMBDA_ARITY = 4;
+
+    private HandlerInvokers() {
+    }
+
+    static HandlerInvoker create(Object controller, Method method) throws IllegalAccessException {
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+        } catch (IllegalAccessException e) { // 控制器所在的模块没有开放，只能访问 public 方法
+            lookup = MethodHandles.publicLookup();
+        }
+        MethodHandle target = lookup.unreflect(method);
+        if (method.getParameterCount() <= MAX_LAMBDA_ARITY && (lookup.lookupModes() & MethodHandles.Lookup.PRIVATE) != 0
+                && seesCallInterfaces(method.getDeclaringClass())) {
+            try {
+                return lambda(lookup, target, controller, method);
+            } catch (LambdaConversionException | LinkageError ignore) { // 使用 MethodHandle
+            }
+        }
+        return spreader(Modifier.isStatic(method.getModifiers()) ? target : target.bindTo(controller));
+    }
+
+    /**
+     * 生成的实现类与控制器在同一个类加载器中，需要能从该类加载器加载到 CallN、VoidCallN 接口，
+     * 否则（如 JDK 类、其他类加载器加载的控制器）生成时抛出 NoClassDefFoundError
+     */
+    private static boolean seesCallInterfaces(Class<?> declaringClass) {
+        try {
+            return Class.forName(HandlerInvokers.class.getName(), false, declaringClass.getClassLoader())
+                    == HandlerInvokers.class;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 展开参数数组的 MethodHandle，类型为 (Object[])Object，基本类型的参数可以拓宽转换
+     */
+    static HandlerInvoker spreader(MethodHandle target) {
+        MethodHandle invoker = target.asSpreader(Object[].class, target.type().parameterCount())
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        return args -> (Object) invoker.invokeExact(args);
+    }
+
+    private static HandlerInvoker lambda(MethodHandles.Lookup lookup, MethodHandle target, Object controller,
+                                         Method method) throws LambdaConversionException {
+        int arity = method.getParameterCount();
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        boolean isVoid = method.getReturnType() == void.class;
+        Class<?> type = isVoid ? VOID_CALLS[arity] : CALLS[arity];
+        // 生成的实现类捕获控制器，参数从 Object 转换为处理方法的参数类型
+        MethodType factoryType = isStatic ? MethodType.methodType(type) : MethodType.methodType(type, method.getDeclaringClass());
+        MethodType callType = MethodType.genericMethodType(arity);
+        MethodType instantiatedType = MethodType.methodType(method.getReturnType(), method.getParameterTypes()).wrap();
+        if (isVoid) {
+            callType = callType.changeReturnType(void.class);
+            instantiatedType = instantiatedType.changeReturnType(void.class);
+        }
+        CallSite site = LambdaMetafactory.metafactory(lookup, "call", factoryType, callType, target, instantiatedType);
+        Object call;
+        try {
+            call = isStatic ? site.getTarget().invoke() : site.getTarget().invoke(controller);
+        } catch (Throwable e) {
+            throw new LambdaConversionException(e);
+        }
+        switch (arity) {
+            case 0:
+                if (isVoid) {
+                    VoidCall0 c = (VoidCall0) call;
+                    return args -> {
+                        c.call();
+                        return null;
+                    };
+                }
+                Call0 c0 = (Call0) call;
+                return args -> c0.call();
+            case 1:
+                if (isVoid) {
+                    VoidCall1 c = (VoidCall1) call;
+                    return args -> {
+                        c.call(args[0]);
+                        return null;
+                    };
+                }
+                Call1 c1 = (Call1) call;
+                return args -> c1.call(args[0]);
+            case 2:
+                if (isVoid) {
+                    VoidCall2 c = (VoidCall2) call;
+                    return args -> {
+                        c.call(args[0], args[1]);
+                        return null;
+                    };
+                }
+                Call2 c2 = (Call2) call;
+                return args -> c2.call(args[0], args[1]);
+            case 3:
+                if (isVoid) {
+                    VoidCall3 c = (VoidCall3) call;
+                    return args -> {
+                        c.call(args[0], args[1], args[2]);
+                        return null;
+                    };
+                }
+                Call3 c3 = (Call3) call;
+                return args -> c3.call(args[0], args[1], args[2]);
+            default:
+                if (isVoid) {
+                    VoidCall4 c = (VoidCall4) call;
+                    return args -> {
+                        c.call(args[0], args[1], args[2], args[3]);
+                        return null;
+                    };
+                }
+                Call4 c4 = (Call4) call;
+                return args -> c4.call(args[0], args[1], args[2], args[3]);
+        }
+    }
+
+    private static final Class<?>[] CALLS = {Call0.class, Call1.class, Call2.class, Call3.class, Call4.class};
+    private static final Class<?>[] VOID_CALLS = {VoidCall0.class, VoidCall1.class, VoidCall2.class, VoidCall3.class, VoidCall4.class};
+
+    // 生成的实现类与控制器类在同一个包中，接口需要是 public 的
+
+    public interface Call0 {
+        Object call();
+    }
+
+    public interface Call1 {
+        Object call(Object a);
+    }
+
+    public interface Call2 {
+        Object call(Object a, Object b);
+    }
+
+    public interface Call3 {
+        Object call(Object a, Object b, Object c);
+    }
+
+    public interface Call4 {
+        Object call(Object a, Object b, Object c, Object d);
+    }
+
+    public interface VoidCall0 {
+        void call();
+    }
+
+    public interface VoidCall1 {
+        void call(Object a);
+    }
+
+    public interface VoidCall2 {
+        void call(Object a, Object b);
+    }
+
+    public interface VoidCall3 {
+        void call(Object a, Object b, Object c);
+    }
+
+    public interface VoidCall4 {
+        void call(Object a, Object b, Object c, Object d);
+    }
+}
@@ -0,0 +1,13 @@
+package org.webserver.container;
+
+import org.webserver.exception.InternalServerException;
+import org.webserver.http.request.HttpRequest;
+import org.webserver.http.response.HttpResponse;
+
+/**
+ * 从请求中取得处理方法一个参数的值，扫描时由 ParameterBinders 根据参数的注解和类型生成
+ */
+@FunctionalInterface
+interface ParameterBinder {
+    Object bind(HttpRequest request, HttpResponse response) throws InternalServerException;
+}
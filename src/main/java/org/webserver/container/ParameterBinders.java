@@ -0,0 +1,96 @@
+package org.webserver.container;
+
+import org.webserver.container.annotation.CookieValue;
+import org.webserver.container.annotation.PathVariable;
+import org.webserver.container.annotation.RequestHeader;
+import org.webserver.container.annotation.RequestParam;
+import org.webserver.http.Cookie;
+import org.webserver.http.request.HttpRequest;
+import org.webserver.http.response.HttpResponse;
+import org.webserver.http.session.HttpSession;
+import org.webserver.util.ReflectUtil;
+
+import java.lang.reflect.Parameter;
+import java.util.function.Function;
+
+/**
+ * 生成 ParameterBinder：注解、参数类型只在扫描时读取一次，参数的来源（请求参数、路径变量、请求头、Cookie、
+ * Session、请求、响应）和类型转换都在生成时确定，处理请求时只执行绑定
+ */
+final class ParameterBinders {
+
+    private ParameterBinders() {
+    }
+
+    static ParameterBinder create(Parameter parameter) {
+        Class<?> type = parameter.getType();
+        boolean simpleType = ReflectUtil.isSimpleType(type);
+        // @RequestParam
+        RequestParam requestParam = parameter.getAnnotation(RequestParam.class);
+        if (requestParam != null) {
+            String name = requestParam.value();
+            if (!simpleType) { // Java Bean
+                BeanBinder bean = new BeanBinder(type, name + ".");
+                return (request, response) -> bean.bind(request);
+            }
+            Function<String, Object> converter = ReflectUtil.converter(type);
+            if (!requestParam.defaultValue().equals("")) {
+                // 注解提供的默认值
+                Object defaultValue = converter.apply(requestParam.defaultValue());
+                return (request, response) -> {
+                    String value = request.getParameter(name);
+                    return value != null ? converter.apply(value) : defaultValue;
+                };
+            }
+            return (request, response) -> {
+                String value = request.getParameter(name);
+                // 空默认值
+                return value != null ? converter.apply(value) : ReflectUtil.defaultValue(type);
+            };
+        }
+        // @PathVariable
+        PathVariable pathVariable = parameter.getAnnotation(PathVariable.class);
+        if (pathVariable != null && simpleType) {
+            String name = pathVariable.value();
+            Function<String, Object> converter = ReflectUtil.converter(type);
+            return (request, response) -> converter.apply(request.getPathVariable(name));
+        }
+        // @RequestHeader
+        RequestHeader requestHeader = parameter.getAnnotation(RequestHeader.class);
+        if (requestHeader != null && simpleType) {
+            String name = requestHeader.value();
+            if (type == String.class) {
+                return (request, response) -> request.getHeader(name);
+            }
+            Function<String, Object> converter = ReflectUtil.converter(type);
+            return (request, response) -> converter.apply(request.getHeader(name));
+        }
+        // @CookieValue
+        CookieValue cookieValue = parameter.getAnnotation(CookieValue.class);
+        if (cookieValue != null && type == String.class) {
+            String name = cookieValue.value();
+            return (request, response) -> {
+                Cookie cookie = request.getCookie(name);
+                return cookie == null ? "" : cookie.getValue();
+            };
+        }
+        if (type == HttpRequest.class) {
+            return (request, response) -> request;
+        }
+        if (type == HttpResponse.class) {
+            return (request, response) -> response;
+        }
+        if (type == HttpSession.class) {
+            return (request, response) -> request.getSession();
+        }
+        String name = parameter.getName();
+        // 简单类型，取参数名对应的请求参数
+        if (simpleType) {
+            Function<String, Object> converter = ReflectUtil.converter(type);
+            return (request, response) -> converter.apply(request.getParameter(name));
+        }
+        // JavaBean，支持级联赋值
+        BeanBinder bean = new BeanBinder(type, name + ".");
+        return (request, response) -> bean.bind(request);
+    }
+}
@@ -0,0 +1,278 @@
+package org.webserver.container;
+
+import org.webserver.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 请求路由：由 ControllerScanner 在启动时构建的基数树（radix tree），按请求路径找到映射的路由。
+ *
+ * 路径模式支持：
+ * - 静态路径，如 /user/list
+ * - 路径变量，占据一整段，如 /user/{id}/posts，匹配到下一个 / 之前的非空内容，通过 @PathVariable 绑定
+ * - 通配后缀，如 /files/**，匹配 /files 及其下的任意路径
+ * 同一路径可以为不同的请求方法映射不同的处理方法，没有对应方法的映射时使用 HttpMethod.ANY 的映射。
+ *
+ * 匹配时只在请求路径（String）上比较字符，不截取子串，优先级：静态路径 > 路径变量 > 通配后缀
+ */
+public final class Router {
+    private static final String WILDCARD = "/**";
+
+    private final Node root = new Node("");
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * 添加映射，同一路径、同一请求方法重复映射时替换原来的处理方法
+     * @return 被替换的处理方法，没有时返回 null
+     * @throws IllegalArgumentException 路径模式格式错误
+     */
+    TargetMethod add(String pattern, HttpMethod method, TargetMethod target) {
+        boolean wildcard = pattern.endsWith(WILDCARD);
+        String path = wildcard ? pattern.substring(0, pattern.length() - WILDCARD.length()) : pattern;
+        Node node = root;
+        int pos = 0;
+        // 路径变量所在的段（第一个 / 之后为第 0 段）和变量名
+        List<Integer> variableSegments = new ArrayList<>();
+        List<String> variableNames = new ArrayList<>();
+        int segment = -1;
+        while (pos < path.length()) {
+            int open = path.indexOf('{', pos);
+            int staticEnd = open == -1 ? path.length() : open;
+            for (int i = pos; i < staticEnd; i++) {
+                char c = path.charAt(i);
+                if (c == '/') {
+                    segment++;
+                } else if (c == '}' || c == '*') {
+                    throw new IllegalArgumentException("路径模式格式错误：" + pattern);
+                }
+            }
+            if (staticEnd > pos) {
+                node = node.insertStatic(path, pos, staticEnd);
+            }
+            if (open == -1) {
+                break;
+            }
+            // 路径变量必须占据一整段
+            int close = path.indexOf('}', open);
+            int slash = path.indexOf('/', open);
+            if (open == 0 || path.charAt(open - 1) != '/' || close == -1 || close == open + 1
+                    || (slash != -1 && slash < close)
+                    || (close + 1 < path.length() && path.charAt(close + 1) != '/')) {
+                throw new IllegalArgumentException("路径模式格式错误：" + pattern);
+            }
+            variableSegments.add(segment);
+            variableNames.add(path.substring(open + 1, close));
+            if (node.variable == null) {
+                node.variable = new Node("");
+            }
+            node = node.variable;
+            pos = close + 1;
+        }
+
+        String[] names = new String[segment + 1];
+        for (int i = 0; i < variableSegments.size(); i++) {
+            names[variableSegments.get(i)] = variableNames.get(i);
+        }
+        Route route = wildcard ? node.wildcard : node.route;
+        if (route == null) {
+            route = new Route(pattern, variableSegments.isEmpty() ? null : names);
+            routes.add(route);
+            if (wildcard) {
+                node.wildcard = route;
+            } else {
+                node.route = route;
+            }
+        }
+        TargetMethod previous = route.handlers[method.ordinal()];
+        route.handlers[method.ordinal()] = target;
+        return previous;
+    }
+
+    /**
+     * 查找请求路径（可以带有查询字符串）匹配的路由，不分配内存
+     * @return 没有匹配的路由时返回 null
+     */
+    Route find(String uri) {
+        int end = uri.indexOf('?');
+        return match(root, uri, 0, end == -1 ? uri.length() : end);
+    }
+
+    private static Route match(Node node, String path, int pos, int end) {
+        if (pos == end && node.route != null) {
+            return node.route;
+        }
+        if (pos < end) {
+            Node child = node.child(path.charAt(pos));
+            if (child != null) {
+                int length = child.prefix.length();
+                if (pos + length <= end && path.regionMatches(pos, child.prefix, 0, length)) {
+                    Route route = match(child, path, pos + length, end);
+                    if (route != null) {
+                        return route;
+                    }
+                }
+            }
+            if (node.variable != null) {
+                int next = pos;
+                while (next < end && path.charAt(next) != '/') {
+                    next++;
+                }
+                if (next > pos) {
+                    Route route = match(node.variable, path, next, end);
+                    if (route != null) {
+                        return route;
+                    }
+                }
+            }
+        }
+        if (node.wildcard != null && (pos == end || path.charAt(pos) == '/')) {
+            return node.wildcard;
+        }
+        return null;
+    }
+
+    List<Route> getRoutes() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    @Override
+    public String toString() {
+        return routes.toString();
+    }
+
+    /**
+     * 基数树的节点：prefix 为从父节点到该节点的静态路径（压缩的边）
+     */
+    private static final class Node {
+        private static final Node[] EMPTY = new Node[0];
+
+        String prefix;
+        /** 静态子节点，prefix 的首字符各不相同 */
+        Node[] children = EMPTY;
+        /** 路径变量子节点，prefix 为空 */
+        Node variable;
+        /** 到该节点结束的路由 */
+        Route route;
+        /** 以该节点为前缀的通配路由 */
+        Route wildcard;
+
+        Node(String prefix) {
+            this.prefix = prefix;
+        }
+
+        Node child(char first) {
+            for (Node child : children) {
+                if (child.prefix.charAt(0) == first) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 插入静态路径 path[start, end)，必要时拆分已有的边
+         * @return 路径结束处的节点
+         */
+        Node insertStatic(String path, int start, int end) {
+            Node node = this;
+            while (start < end) {
+                Node child = node.child(path.charAt(start));
+                if (child == null) {
+                    child = new Node(path.substring(start, end));
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.children[node.children.length - 1] = child;
+                    return child;
+                }
+                int common = 0;
+                int max = Math.min(child.prefix.length(), end - start);
+                while (common < max && child.prefix.charAt(common) == path.charAt(start + common)) {
+                    common++;
+                }
+                if (common < child.prefix.length()) { // 拆分：公共部分作为新的中间节点
+                    Node split = new Node(child.prefix.substring(0, common));
+                    child.prefix = child.prefix.substring(common);
+                    split.children = new Node[]{child};
+                    node.children[Arrays.asList(node.children).indexOf(child)] = split;
+                    child = split;
+                }
+                node = child;
+                start += common;
+            }
+            return node;
+        }
+    }
+
+    /**
+     * 一个路径模式的映射，按请求方法分派
+     */
+    public static final class Route {
+        private final String pattern;
+        /** 每一段的路径变量名，不是变量的段为 null；没有路径变量时为 null */
+        private final String[] variableNames;
+        /** 按 HttpMethod 的序号 */
+        private final TargetMethod[] handlers = new TargetMethod[HttpMethod.values().length];
+
+        private Route(String pattern, String[] variableNames) {
+            this.pattern = pattern;
+            this.variableNames = variableNames;
+        }
+
+        /**
+         * 请求方法对应的处理方法，没有时使用 ANY 的映射
+         * @return 都没有时返回 null（405）
+         */
+        TargetMethod handler(HttpMethod method) {
+            TargetMethod target = handlers[method.ordinal()];
+            return target != null ? target : handlers[HttpMethod.ANY.ordinal()];
+        }
+
+        /**
+         * 请求是否可以不阻塞地处理：映射到被 @NonBlocking 标记的方法，或请求方法不支持（直接返回 405）
+         */
+        public boolean isNonBlocking(HttpMethod method) {
+            TargetMethod target = handler(method);
+            return target == null || target.isNonBlocking();
+        }
+
+        boolean hasVariables() {
+            return variableNames != null;
+        }
+
+        /**
+         * 从匹配该路由的请求路径中取出路径变量
+         */
+        Map<String, String> variables(String uri) {
+            if (variableNames == null) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> variables = new HashMap<>();
+            int end = uri.indexOf('?');
+            end = end == -1 ? uri.length() : end;
+            int segment = -1;
+            for (int pos = 0; pos < end && segment < variableNames.length; ) {
+                int next = uri.indexOf('/', pos + 1);
+                next = next == -1 || next > end ? end : next;
+                segment++;
+                if (segment < variableNames.length && variableNames[segment] != null) {
+                    variables.put(variableNames[segment], uri.substring(pos + 1, next));
+                }
+                pos = next;
+            }
+            return variables;
+        }
+
+        String getPattern() {
+            return pattern;
+        }
+
+        @Override
+        public String toString() {
+            return pattern;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.webserver.container.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记不会阻塞的请求映射方法（或控制器类中的所有方法）：不访问数据库、文件、网络等，
+ * 开启内联处理（INLINE_EXECUTION）时直接在轮询线程中执行，不交给线程池
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface NonBlocking {
+}
@@ -0,0 +1,15 @@
+package org.webserver.container.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 注解在参数上，用于获取路径变量，如 @RequestMapping("/user/{id}") 中的 id
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface PathVariable {
+    String value();
+}
@@ -6,7 +6,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * 注解在参数上，用于获取HTTP请求参数
+ * 注解在参数上，用于获取HTTP请求头
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.PARAMETER)
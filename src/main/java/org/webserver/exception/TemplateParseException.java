@@ -1,4 +1,10 @@
 package org.webserver.exception;
 
 public class TemplateParseException extends Throwable {
+    public TemplateParseException() {
+    }
+
+    public TemplateParseException(String msg) {
+        super(msg);
+    }
 }
@@ -1,6 +1,7 @@
 package org.webserver.http.request;
 
 import org.webserver.constant.HttpConstant;
+import org.webserver.container.Router;
 import org.webserver.http.Cookie;
 import org.webserver.http.HttpMethod;
 import org.webserver.http.session.HttpSession;
@@ -10,12 +11,17 @@ import java.util.*;
 public class HttpRequest {
     private String URI;
     private HttpMethod method;
+    private String protocol;
     private Map<String, String> headers;
     private Map<String, List<String>> params;
-//    private byte[] content;
+    private byte[] content;
     private Map<String, Cookie> cookies;
     private HttpSession session;
     private Map<String, Object> attributes = new HashMap<>();
+    /** 请求路径匹配的路由中的路径变量 */
+    private Map<String, String> pathVariables = Collections.emptyMap();
+    /** 请求路径映射的路由，解析后查找一次；为 null 时请求的是静态资源 */
+    private Router.Route route;
 
     public HttpRequest() {
     }
@@ -52,6 +58,37 @@ public class HttpRequest {
         return this.params.get(key);
     }
 
+    /**
+     * 是否有以 prefix 开头的请求参数，如级联属性的前缀 user.info.
+     */
+    public boolean hasParameterWithPrefix(String prefix) {
+        for (String key : this.params.keySet()) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 路径变量，如映射 /user/{id} 时请求 /user/42 中的 id
+     */
+    public String getPathVariable(String name) {
+        return this.pathVariables.get(name);
+    }
+
+    public void setPathVariables(Map<String, String> pathVariables) {
+        this.pathVariables = pathVariables;
+    }
+
+    public Router.Route getRoute() {
+        return route;
+    }
+
+    public void setRoute(Router.Route route) {
+        this.route = route;
+    }
+
     public String getHeader(String name) {
         return this.headers.get(name);
     }
@@ -60,6 +97,14 @@ public class HttpRequest {
         return getHeader(HttpConstant.CONTENT_TYPE);
     }
 
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
     public String getRemoteAddr() {
         return "";
     }
@@ -74,6 +119,18 @@ public class HttpRequest {
         this.URI = URI;
     }
 
+    void setProtocol(String protocol) {
+        this.protocol = protocol;
+    }
+
+    void setContent(byte[] content) {
+        this.content = content;
+    }
+
+    Map<String, List<String>> getParams() {
+        return params;
+    }
+
     public void setParams(Map<String, List<String>> params) {
         this.params = params;
     }
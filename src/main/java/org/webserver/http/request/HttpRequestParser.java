@@ -1,78 +1,110 @@
 package org.webserver.http.request;
 
-import org.webserver.connector.SocketWrapper;
 import org.webserver.constant.HttpConstant;
 import org.webserver.container.Container;
+import org.webserver.exception.HttpRequestParseException;
 import org.webserver.http.Cookie;
 import org.webserver.http.HttpMethod;
 
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 
+/**
+ * 逐字节解析 HTTP/1.1 请求报文的状态机，每个连接持有一个实例。
+ * 数据不完整时保存解析进度，下次读到数据后继续解析，只有完整的请求（包括 Content-Length 指定的请求体）
+ * 才会被返回，从而保证长连接上前后请求的边界正确。
+ */
 public class HttpRequestParser {
-    public static HttpRequest parseRequest(SocketWrapper socketWrapper, Container container) {
-        // 应该逐字节判断？长连接需要根据Content-Length，判断请求结束，为了方便就用Scanner了
-        HttpRequest request = new HttpRequest();
-        Scanner in = new Scanner(socketWrapper.getClient());
-        parseReqLine(in, request);
-        parseParams(in, request);
-        parseHeaders(in, request);
-        parseCookies(in, request);
-        parseSession(container, request);
-        parseBody(in, request);
-        return request;
-    }
+    /** 请求行、请求头单行的最大长度 */
+    private static final int MAX_LINE_LENGTH = 8192;
+    /** 请求头的最大个数 */
+    private static final int MAX_HEADER_COUNT = 100;
+    /** 请求体的最大长度 */
+    private static final int MAX_BODY_LENGTH = 8 * 1024 * 1024;
+    /** 请求体缓冲区的初始大小，随读到的数据增长到 Content-Length，不按客户端声明的长度预先分配 */
+    private static final int INITIAL_BODY_CAPACITY = 8192;
 
-    private static void parseReqLine(Scanner in, HttpRequest request) {
-        String line = in.nextLine();
-        String[] sa = line.split(" ");
-        request.setMethod(HttpMethod.get(sa[0]));
-        request.setRequestURI(URLDecoder.decode(sa[1], StandardCharsets.UTF_8));
+    private enum State {
+        REQUEST_LINE, HEADER, BODY
     }
 
-    private static void parseParams(Scanner in, HttpRequest request) {
-        Map<String, List<String>> params = new HashMap<>();
-        if (request.getRequestURI().indexOf('?') == -1) {
-            request.setParams(params);
-            return;
-        }
-        String[] sa, kv;
-        sa = request.getRequestURI().substring(request.getRequestURI().indexOf('?') + 1).split("&");
-        for (String param : sa) {
-            kv = param.split("=");
-            params.putIfAbsent(kv[0], new ArrayList<>(1));
-            params.get(kv[0]).add(kv[1]);
+    private State state = State.REQUEST_LINE;
+    /** 当前正在读取的行 */
+    private byte[] line = new byte[256];
+    private int lineLength;
+
+    private HttpRequest request;
+    private Map<String, String> headers;
+    private byte[] body;
+    private int bodyLength;
+    /** Content-Length 指定的请求体长度 */
+    private int contentLength;
+
+    /**
+     * 从 buffer（读模式）中解析请求，已消费的字节会被移出 buffer，
+     * 一旦解析出一个完整的请求即返回，其后的字节保留在 buffer 中
+     * @return 完整的请求，数据不完整时返回 null
+     */
+    public HttpRequest parse(ByteBuffer buffer) throws HttpRequestParseException {
+        while (buffer.hasRemaining()) {
+            if (state == State.BODY) {
+                if (bodyLength == body.length) {
+                    body = Arrays.copyOf(body, (int) Math.min((long) body.length * 2, contentLength));
+                }
+                int n = Math.min(buffer.remaining(), body.length - bodyLength);
+                buffer.get(body, bodyLength, n);
+                bodyLength += n;
+                if (bodyLength == contentLength) {
+                    return finish();
+                }
+                continue;
+            }
+            byte b = buffer.get();
+            if (b != '\n') {
+                appendToLine(b);
+                continue;
+            }
+            // 读到一整行，去掉末尾的 '\r'
+            int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+            lineLength = 0;
+            if (state == State.REQUEST_LINE) {
+                if (length == 0) { // 忽略请求行之前的空行（RFC 7230 3.5）
+                    continue;
+                }
+                parseReqLine(length);
+                state = State.HEADER;
+            } else if (length != 0) {
+                parseHeader(length);
+            } else { // 空行，请求头结束
+                HttpRequest completed = parseHeadersEnd();
+                if (completed != null) {
+                    return completed;
+                }
+            }
         }
-        request.setParams(params);
+        return null;
     }
 
-    private static void parseHeaders(Scanner in, HttpRequest request) {
-        Map<String, String> headers = new HashMap<>();
-        String line;
-        while (!(line = in.nextLine()).equals("")) {
-            String[] h = line.split(":");
-            headers.put(h[0], h[1].trim());
-        }
-        request.setHeaders(headers);
+    /**
+     * 是否正在解析某个请求（已读取了部分请求数据）
+     */
+    public boolean isParsing() {
+        return request != null || lineLength > 0;
     }
 
-    private static void parseCookies(Scanner in, HttpRequest request) {
-        String cookieStr = request.getHeader(HttpConstant.COOKIE);
-        if (cookieStr == null) {
-            request.setCookies(new HashMap<>());
-            return;
-        }
-        String[] sa = cookieStr.split(";"), kv;
-        Map<String, Cookie> cookies = new HashMap<>();
-        for (String s : sa) {
-            kv = s.split("=");
-            cookies.put(kv[0].trim(), new Cookie(kv[0].trim(), kv[1].trim()));
-        }
-        request.setCookies(cookies);
+    /**
+     * 是否正在读取某个请求的请求行或请求头
+     */
+    public boolean isReadingHeader() {
+        return isParsing() && state != State.BODY;
     }
 
-    private static void parseSession(Container container, HttpRequest request) {
+    /**
+     * 根据 Cookie 中的 JSESSIONID 为请求绑定 Session
+     */
+    public static void parseSession(HttpRequest request, Container container) {
         Cookie jsessionid = request.getCookie(HttpConstant.JSESSIONID);
         if (jsessionid != null) {
             if (container.getSession(jsessionid.getValue()) != null) { // session没被销毁
@@ -85,34 +117,168 @@ public class HttpRequestParser {
         }
     }
 
+    private void appendToLine(byte b) throws HttpRequestParseException {
+        if (lineLength == MAX_LINE_LENGTH) {
+            throw new HttpRequestParseException("请求行或请求头过长");
+        }
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_LENGTH));
+        }
+        line[lineLength++] = b;
+    }
+
+    /**
+     * 请求行：Method SP Request-URI SP HTTP-Version
+     */
+    private void parseReqLine(int length) throws HttpRequestParseException {
+        String reqLine = new String(line, 0, length, StandardCharsets.ISO_8859_1);
+        int first = reqLine.indexOf(' '), last = reqLine.lastIndexOf(' ');
+        if (first <= 0 || last == first || !reqLine.startsWith("HTTP/", last + 1)) {
+            throw new HttpRequestParseException("请求行格式错误：" + reqLine);
+        }
+        String target = reqLine.substring(first + 1, last);
+        request = new HttpRequest();
+        request.setMethod(HttpMethod.get(reqLine.substring(0, first)));
+        request.setProtocol(reqLine.substring(last + 1));
+        request.setRequestURI(decode(target));
+        Map<String, List<String>> params = new HashMap<>();
+        request.setParams(params);
+        int idx = target.indexOf('?');
+        if (idx != -1) {
+            parseParams(target.substring(idx + 1), params);
+        }
+        headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    }
+
+    /**
+     * 请求头：Name ":" OWS Value OWS
+     */
+    private void parseHeader(int length) throws HttpRequestParseException {
+        if (headers.size() == MAX_HEADER_COUNT) {
+            throw new HttpRequestParseException("请求头过多");
+        }
+        int colon = 0;
+        while (colon < length && line[colon] != ':') {
+            colon++;
+        }
+        if (colon == 0 || colon == length) {
+            throw new HttpRequestParseException("请求头格式错误：" + new String(line, 0, length, StandardCharsets.ISO_8859_1));
+        }
+        String name = new String(line, 0, colon, StandardCharsets.ISO_8859_1).trim();
+        String value = new String(line, colon + 1, length - colon - 1, StandardCharsets.ISO_8859_1).trim();
+        String previous = headers.put(name, value);
+        // 多个不一致的 Content-Length 无法确定请求体的边界（RFC 7230 3.3.3）
+        if (previous != null && !previous.equals(value) && name.equalsIgnoreCase(HttpConstant.CONTENT_LENGTH)) {
+            throw new HttpRequestParseException("Content-Length 重复且不一致：" + previous + ", " + value);
+        }
+    }
+
+    /**
+     * 请求头读取完毕，根据 Content-Length 判断是否需要继续读取请求体
+     * @return 没有请求体时直接返回完整的请求
+     */
+    private HttpRequest parseHeadersEnd() throws HttpRequestParseException {
+        request.setHeaders(headers);
+        parseCookies();
+        if (headers.containsKey(HttpConstant.TRANSFER_ENCODING)) {
+            throw new HttpRequestParseException("不支持分块传输的请求体");
+        }
+        String value = headers.get(HttpConstant.CONTENT_LENGTH);
+        contentLength = value == null ? 0 : parseContentLength(value);
+        body = new byte[Math.min(contentLength, INITIAL_BODY_CAPACITY)];
+        bodyLength = 0;
+        if (contentLength == 0) {
+            return finish();
+        }
+        state = State.BODY;
+        return null;
+    }
+
+    /**
+     * Content-Length = 1*DIGIT，不接受符号、空白等 Integer.parseInt 能解析的其他形式
+     */
+    private static int parseContentLength(String value) throws HttpRequestParseException {
+        if (value.isEmpty()) {
+            throw new HttpRequestParseException("Content-Length 格式错误：" + value);
+        }
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new HttpRequestParseException("Content-Length 格式错误：" + value);
+            }
+            length = length * 10 + (c - '0');
+            if (length > MAX_BODY_LENGTH) {
+                throw new HttpRequestParseException("请求体长度不合法：" + value);
+            }
+        }
+        return (int) length;
+    }
+
+    private void parseCookies() {
+        Map<String, Cookie> cookies = new HashMap<>();
+        String cookieStr = headers.get(HttpConstant.COOKIE);
+        if (cookieStr != null) {
+            for (String s : cookieStr.split(";")) {
+                int idx = s.indexOf('=');
+                if (idx > 0) {
+                    String name = s.substring(0, idx).trim();
+                    cookies.put(name, new Cookie(name, s.substring(idx + 1).trim()));
+                }
+            }
+        }
+        request.setCookies(cookies);
+    }
+
+    /**
+     * 请求读取完毕，解析表单并重置状态，准备解析下一个请求
+     */
+    private HttpRequest finish() throws HttpRequestParseException {
+        HttpRequest completed = this.request;
+        completed.setContent(body);
+        String contentType = completed.getContentType();
+        if (completed.getMethod() == HttpMethod.POST && contentType != null
+                && contentType.startsWith(HttpConstant.POST_COMMIT_FORM)) {
+            parseParams(new String(body, StandardCharsets.UTF_8), completed.getParams());
+        }
+        this.state = State.REQUEST_LINE;
+        this.request = null;
+        this.headers = null;
+        this.body = null;
+        return completed;
+    }
 
-    private static void parseBody(Scanner in, HttpRequest request) {
-        if (!request.getMethod().equals(HttpMethod.POST))
-            return;
-        if (request.getHeader(HttpConstant.CONTENT_TYPE).equals(HttpConstant.POST_COMMIT_FORM)) {
-            String[] sa, kv;
-            sa = URLDecoder.decode(in.nextLine(), StandardCharsets.UTF_8).split("&");
-            for (String param : sa) {
-                kv = param.split("=");
-                request.addParam(kv[0], kv[1]);
+    /**
+     * 解析 k1=v1&k2=v2 形式的参数
+     */
+    private static void parseParams(String query, Map<String, List<String>> params) throws HttpRequestParseException {
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end == -1) {
+                end = query.length();
+            }
+            if (end > start) {
+                int eq = query.indexOf('=', start);
+                String k, v;
+                if (eq == -1 || eq > end) {
+                    k = decode(query.substring(start, end));
+                    v = "";
+                } else {
+                    k = decode(query.substring(start, eq));
+                    v = decode(query.substring(eq + 1, end));
+                }
+                params.computeIfAbsent(k, key -> new ArrayList<>(1)).add(v);
             }
+            start = end + 1;
         }
-//        } else if (false && headers.get(HttpConstant.CONTENT_TYPE).equals(HttpConstant.POST_UPLOAD_FILE)) {
-//            // 上传文件
-//        }
     }
 
-    public static void main(String[] args) {
-//        String req = "POST /s?ie=utf-8&word=123%E5%93%88%E5%93%88 HTTP/1.1\r\n" +
-//            "Host: www.baidu.com\r\n" +
-//            "Connection: keep-alive\r\n" +
-//            "Upgrade-Insecure-Requests: 1\r\n" +
-//            "Cookie: a=b; c=3; fuck=123\r\n" +
-//            "Content-Type: application/x-www-form-urlencoded\r\n" +
-//            "User-Agent: Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/79.0.3945.130 Safari/537.36\r\n" +
-//            "\r\n" +
-//            "post=ppp&ok=ok";
-//        HttpRequest res = parseRequest(null, req.getBytes());
-//        System.out.println(res);
+    private static String decode(String s) throws HttpRequestParseException {
+        try {
+            return URLDecoder.decode(s, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new HttpRequestParseException("URL 编码错误：" + s);
+        }
     }
 }
@@ -0,0 +1,68 @@
+package org.webserver.http.response;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Deflater 池：Deflater 持有本地内存（zlib 的压缩窗口等），每次创建、释放的开销较大，且依赖 end 释放，
+ * 因此压缩完成后 reset 放回池中复用。池中最多保留 maxIdle 个，多出的直接 end。
+ */
+public class DeflaterPool {
+    private final int level;
+    private final int maxIdle;
+    private final Queue<Deflater> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * @param level 压缩级别，0 ~ 9
+     */
+    public DeflaterPool(int level, int maxIdle) {
+        this.level = level;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * 借出一个 Deflater，只输出 deflate 数据（没有 zlib 头部和校验和），由调用者添加 gzip 头部和尾部
+     */
+    public Deflater acquire() {
+        Deflater deflater = idle.poll();
+        if (deflater != null) {
+            idleCount.decrementAndGet();
+            hitCount.increment();
+            return deflater;
+        }
+        missCount.increment();
+        return new Deflater(level, true);
+    }
+
+    /**
+     * 归还 Deflater，不能再使用
+     */
+    public void release(Deflater deflater) {
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        idle.offer(deflater);
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+}
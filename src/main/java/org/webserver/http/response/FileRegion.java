@@ -0,0 +1,89 @@
+package org.webserver.http.response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 响应体中的一段文件内容，发送时通过 FileChannel.transferTo 由内核直接从文件拷贝到 socket（sendfile），
+ * 不读入 JVM 内存。可以带有一段在文件内容之前发送的数据（如 multipart 响应中每个部分的头部）。
+ *
+ * 非阻塞 socket 的发送缓冲区满时只会写入一部分，记录已发送的位置，下次从该位置继续。
+ */
+public class FileRegion {
+    private final FileChannel channel;
+    /** 在文件内容之前发送的数据，可以为 null */
+    private final ByteBuffer prefix;
+    private final long position;
+    private final long count;
+    /** 已发送的文件字节数 */
+    private long transferred;
+
+    public FileRegion(FileChannel channel, long position, long count) {
+        this(null, channel, position, count);
+    }
+
+    /**
+     * @param channel 只发送 prefix 时（count 为 0）可以为 null
+     */
+    public FileRegion(ByteBuffer prefix, FileChannel channel, long position, long count) {
+        this.prefix = prefix;
+        this.channel = channel;
+        this.position = position;
+        this.count = count;
+    }
+
+    /**
+     * 尽可能多地发送（非阻塞），先发送 prefix，再发送文件内容
+     * @return 发送的字节数
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        long written = 0;
+        if (prefix != null && prefix.hasRemaining()) {
+            written += target.write(prefix);
+            if (prefix.hasRemaining()) {
+                return written;
+            }
+        }
+        while (transferred < count) {
+            long n = channel.transferTo(position + transferred, count - transferred, target);
+            if (n <= 0) { // 发送缓冲区已满，或文件被截断
+                if (position + transferred >= channel.size()) {
+                    throw new IOException("文件长度不足");
+                }
+                break;
+            }
+            transferred += n;
+            written += n;
+        }
+        return written;
+    }
+
+    /**
+     * 是否已全部发送
+     */
+    public boolean isDone() {
+        return (prefix == null || !prefix.hasRemaining()) && transferred >= count;
+    }
+
+    /**
+     * 未发送的字节数（包括 prefix）
+     */
+    public long length() {
+        return (prefix == null ? 0 : prefix.remaining()) + count - transferred;
+    }
+
+    /**
+     * 关闭文件，多个 FileRegion 共享同一个文件时可以重复关闭
+     */
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+        }
+    }
+}
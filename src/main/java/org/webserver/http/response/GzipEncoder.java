@@ -0,0 +1,203 @@
+package org.webserver.http.response;
+
+import org.webserver.buffer.BufferOutputStream;
+import org.webserver.buffer.BufferPool;
+import org.webserver.constant.HttpConstant;
+import org.webserver.constant.ServerConfig;
+import org.webserver.http.request.HttpRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * gzip 内容编码：根据请求的 Accept-Encoding 协商，压缩达到最小长度、类型在允许列表中的响应体。
+ * 使用 DeflaterPool 中复用的 Deflater，直接从（直接）缓冲区读取数据压缩，不拷贝到堆内存。
+ */
+public class GzipEncoder {
+    public static final String GZIP = "gzip";
+
+    /** 是否启用压缩 */
+    private final static boolean COMPRESSION =
+            Boolean.parseBoolean(System.getProperty(ServerConfig.COMPRESSION, "true"));
+
+    /** 压缩的最小响应体长度（字节），更小的响应压缩后节省有限，不值得消耗 CPU */
+    private final static long COMPRESSION_MIN_SIZE = Long.getLong(ServerConfig.COMPRESSION_MIN_SIZE, 1024);
+
+    /** 压缩级别 */
+    private final static int COMPRESSION_LEVEL = Integer.getInteger(ServerConfig.COMPRESSION_LEVEL, 6);
+
+    /** 允许压缩的 MIME 类型，如 text/html，可以使用 text/* 匹配一类 */
+    private final static Set<String> COMPRESSION_MIME_TYPES = parseMimeTypes(System.getProperty(
+            ServerConfig.COMPRESSION_MIME_TYPES,
+            "text/html,text/css,text/plain,text/xml,text/javascript,application/javascript,application/json,"
+                    + "application/xml,image/svg+xml"));
+
+    private final static DeflaterPool DEFLATERS =
+            new DeflaterPool(COMPRESSION_LEVEL, Runtime.getRuntime().availableProcessors() * 2);
+
+    /** gzip 头部：ID1 ID2 CM(deflate) FLG MTIME(4) XFL OS(unknown) */
+    private final static byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static Set<String> parseMimeTypes(String config) {
+        Set<String> types = new HashSet<>();
+        for (String type : config.split(",")) {
+            if (!type.isBlank()) {
+                types.add(type.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return types;
+    }
+
+    /**
+     * 该类型的响应是否可能被压缩（需要发送 Vary: Accept-Encoding）
+     * @param contentType Content-Type，可以带有参数，如 text/html; charset=utf-8
+     */
+    public static boolean isCompressibleType(String contentType) {
+        if (!COMPRESSION || contentType == null) {
+            return false;
+        }
+        int idx = contentType.indexOf(';');
+        String type = (idx == -1 ? contentType : contentType.substring(0, idx)).trim().toLowerCase(Locale.ROOT);
+        int slash = type.indexOf('/');
+        return COMPRESSION_MIME_TYPES.contains(type)
+                || (slash != -1 && COMPRESSION_MIME_TYPES.contains(type.substring(0, slash) + "/*"));
+    }
+
+    /**
+     * 该类型、长度的响应是否需要压缩
+     */
+    public static boolean isCompressible(String contentType, long length) {
+        return length >= COMPRESSION_MIN_SIZE && isCompressibleType(contentType);
+    }
+
+    /**
+     * 客户端是否接受 gzip 编码：Accept-Encoding 中 gzip（或 x-gzip）的 q 值大于 0，
+     * 没有列出 gzip 时看 * 的 q 值
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            int idx = coding.indexOf(';');
+            String name = (idx == -1 ? coding : coding.substring(0, idx)).trim();
+            double q = idx == -1 ? 1 : qValue(coding.substring(idx + 1));
+            if (name.equalsIgnoreCase(GZIP) || name.equalsIgnoreCase("x-gzip")) {
+                gzip = Math.max(gzip, q);
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        return gzip == -1 ? any > 0 : gzip > 0;
+    }
+
+    private static double qValue(String params) {
+        for (String param : params.split(";")) {
+            param = param.trim();
+            if (param.startsWith("q=") || param.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * 压缩为 gzip 格式写入 out，input 的 position 不变
+     */
+    public static void gzip(ByteBuffer[] input, OutputStream out) throws IOException {
+        Deflater deflater = DEFLATERS.acquire();
+        try {
+            byte[] buf = new byte[8192];
+            CRC32 crc = new CRC32();
+            long size = 0;
+            out.write(HEADER);
+            for (ByteBuffer buffer : input) {
+                size += buffer.remaining();
+                crc.update(buffer.duplicate());
+                deflater.setInput(buffer.duplicate());
+                while (!deflater.needsInput()) {
+                    out.write(buf, 0, deflater.deflate(buf));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            // 尾部：CRC32、原始长度（模 2^32），小端序
+            writeIntLE(out, crc.getValue());
+            writeIntLE(out, size);
+        } finally {
+            DEFLATERS.release(deflater);
+        }
+    }
+
+    /**
+     * 在响应已有的 Vary 头（如控制器设置的 Vary: Cookie）之后追加 Accept-Encoding，已包含时不重复追加
+     */
+    private static void addVary(HttpResponse response) {
+        String vary = response.getHeader(HttpConstant.VARY);
+        if (vary == null || vary.isBlank()) {
+            response.addHeader(HttpConstant.VARY, HttpConstant.ACCEPT_ENCODING);
+            return;
+        }
+        for (String field : vary.split(",")) {
+            field = field.trim();
+            if (field.equals("*") || field.equalsIgnoreCase(HttpConstant.ACCEPT_ENCODING)) {
+                return;
+            }
+        }
+        response.addHeader(HttpConstant.VARY, vary + ", " + HttpConstant.ACCEPT_ENCODING);
+    }
+
+    private static void writeIntLE(OutputStream out, long value) throws IOException {
+        out.write((int) value & 0xff);
+        out.write((int) (value >> 8) & 0xff);
+        out.write((int) (value >> 16) & 0xff);
+        out.write((int) (value >> 24) & 0xff);
+    }
+
+    /**
+     * 压缩动态生成的响应：响应体全部在缓冲区中、没有编码过、类型允许压缩、达到最小长度，且客户端接受 gzip。
+     * 压缩后没有变小时保留原响应体
+     */
+    public static void encode(HttpRequest request, HttpResponse response) throws IOException {
+        if (!response.isContentOnly() || response.getHeader(HttpConstant.CONTENT_ENCODING) != null
+                || !isCompressibleType(response.getHeader(HttpConstant.CONTENT_TYPE))) {
+            return;
+        }
+        addVary(response);
+        BufferOutputStream content = response.getContent();
+        if (content.size() < COMPRESSION_MIN_SIZE || !acceptsGzip(request.getHeader(HttpConstant.ACCEPT_ENCODING))) {
+            return;
+        }
+        BufferOutputStream compressed = new BufferOutputStream(BufferPool.shared());
+        try {
+            gzip(content.toBuffers(), compressed);
+        } catch (IOException | RuntimeException e) {
+            compressed.release();
+            throw e;
+        }
+        if (compressed.size() >= content.size()) {
+            compressed.release();
+            return;
+        }
+        response.replaceContent(compressed);
+        response.addHeader(HttpConstant.CONTENT_ENCODING, GZIP);
+    }
+
+    public static DeflaterPool getDeflaterPool() {
+        return DEFLATERS;
+    }
+}
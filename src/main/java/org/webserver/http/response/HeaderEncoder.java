@@ -0,0 +1,155 @@
+package org.webserver.http.response;
+
+import org.webserver.constant.HttpConstant;
+import org.webserver.util.HttpDateUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 响应头编码：直接写入（从 BufferPool 借来的）缓冲区，不经过 StringBuilder 和 String.getBytes。
+ * 每种状态的状态行、常用的响应头名预先编码；Date 的值精确到秒，每秒最多格式化一次，其余时间复用。
+ * 缓冲区不够时抛出 BufferOverflowException，由调用者换用更大的缓冲区重新编码
+ */
+final class HeaderEncoder {
+    private static final byte[] CRLF = HttpConstant.CRLF.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CHARSET = "; charset=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MAX_AGE = "max-age=".getBytes(StandardCharsets.US_ASCII);
+
+    /** 状态行，按 HttpStatus 的序号 */
+    private static final byte[][] STATUS_LINES = new byte[HttpStatus.values().length][];
+
+    /** 常用响应头的名（包括冒号和空格） */
+    private static final Map<String, byte[]> NAMES = new HashMap<>();
+
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            STATUS_LINES[status.ordinal()] = (HttpConstant.PROTOCOL + " " + status.getCode() + " " + status.getReason()
+                    + HttpConstant.CRLF).getBytes(StandardCharsets.US_ASCII);
+        }
+        for (String name : new String[]{HttpConstant.CONNECTION, HttpConstant.KEEP_ALIVE, HttpConstant.CONTENT_TYPE,
+                HttpConstant.CONTENT_LENGTH, HttpConstant.CONTENT_ENCODING, HttpConstant.TRANSFER_ENCODING,
+                HttpConstant.DATE, HttpConstant.LOCATION, HttpConstant.RETRY_AFTER, HttpConstant.ETAG,
+                HttpConstant.LAST_MODIFIED, HttpConstant.CACHE_CONTROL, HttpConstant.CONTENT_RANGE,
+                HttpConstant.ACCEPT_RANGES, HttpConstant.VARY, HttpConstant.SET_COOKIE}) {
+            NAMES.put(name, (name + ": ").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /** 当前这一秒的 Date 响应头（包括名和 CRLF） */
+    private static volatile CachedDate cachedDate = new CachedDate(System.currentTimeMillis() / 1000);
+
+    private static final class CachedDate {
+        final long second;
+        final byte[] line;
+
+        CachedDate(long second) {
+            this.second = second;
+            this.line = (HttpConstant.DATE + ": " + HttpDateUtil.format(second * 1000) + HttpConstant.CRLF)
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private HeaderEncoder() {
+    }
+
+    static void statusLine(ByteBuffer buffer, HttpStatus status) {
+        buffer.put(STATUS_LINES[status.ordinal()]);
+    }
+
+    /**
+     * Date 响应头，进入新的一秒时重新格式化
+     */
+    static void date(ByteBuffer buffer, long now) {
+        CachedDate date = cachedDate;
+        long second = now / 1000;
+        if (date.second != second) {
+            date = new CachedDate(second);
+            cachedDate = date;
+        }
+        buffer.put(date.line);
+    }
+
+    /**
+     * 响应头的名、冒号和空格
+     */
+    static void name(ByteBuffer buffer, String name) {
+        byte[] encoded = NAMES.get(name);
+        if (encoded != null) {
+            buffer.put(encoded);
+            return;
+        }
+        ascii(buffer, name);
+        buffer.put((byte) ':').put((byte) ' ');
+    }
+
+    /**
+     * 一个完整的响应头，值为 Content-Type 且没有 charset 参数时添加 characterEncoding
+     * @param characterEncoding 可以为 null
+     */
+    static void header(ByteBuffer buffer, String name, String value, String characterEncoding) {
+        name(buffer, name);
+        ascii(buffer, value);
+        if (characterEncoding != null && name.equals(HttpConstant.CONTENT_TYPE) && !value.contains("charset=")) {
+            buffer.put(CHARSET);
+            ascii(buffer, characterEncoding);
+        }
+        buffer.put(CRLF);
+    }
+
+    static void header(ByteBuffer buffer, String name, long value) {
+        name(buffer, name);
+        decimal(buffer, value);
+        buffer.put(CRLF);
+    }
+
+    static void cookie(ByteBuffer buffer, String name, String value, int maxAge) {
+        name(buffer, HttpConstant.SET_COOKIE);
+        ascii(buffer, name);
+        buffer.put((byte) '=');
+        ascii(buffer, value);
+        buffer.put((byte) ';').put((byte) ' ');
+        if (maxAge != -1) {
+            buffer.put(MAX_AGE);
+            decimal(buffer, maxAge);
+        }
+        buffer.put(CRLF);
+    }
+
+    static void crlf(ByteBuffer buffer) {
+        buffer.put(CRLF);
+    }
+
+    /**
+     * 逐个字符写入，非 ASCII 字符写为 ?（与 String.getBytes(US_ASCII) 相同）
+     */
+    static void ascii(ByteBuffer buffer, String s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            buffer.put(c < 0x80 ? (byte) c : (byte) '?');
+        }
+    }
+
+    /**
+     * 十进制数字，不创建字符串
+     */
+    static void decimal(ByteBuffer buffer, long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                ascii(buffer, "9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+}
@@ -1,34 +1,74 @@
 package org.webserver.http.response;
 
+import org.webserver.buffer.BufferOutputStream;
+import org.webserver.buffer.BufferPool;
 import org.webserver.constant.HttpConstant;
+import org.webserver.constant.ServerConfig;
 import org.webserver.http.Cookie;
 
 import java.io.*;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 public class HttpResponse {
+    /**
+     * 响应体缓冲区大小（字节）：设置了流式发送的通道时，响应体超过该大小就提交响应头，
+     * 之后以 chunked 编码每次发送不超过该大小的一块；不大于 0 表示总是全部缓冲
+     */
+    private final static int RESPONSE_BUFFER_SIZE = Integer.getInteger(ServerConfig.RESPONSE_BUFFER_SIZE, 64 * 1024);
+
+    private final static byte[] CRLF = HttpConstant.CRLF.getBytes(StandardCharsets.US_ASCII);
+    private final static byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
     private HttpStatus status;
-    private Map<String, String> headers;
+    private final ResponseHeaders headers = new ResponseHeaders();
+    /** 没有 Cookie 时为 null */
     private List<Cookie> cookies;
-    private ByteArrayOutputStream content;
+    /** 响应体，写入从 BufferPool 借来的直接缓冲区，写回客户端后需调用 release 归还 */
+    private BufferOutputStream content;
+    private Writer writer;
+    /** 写入 content 的输出流，达到缓冲区大小时分块发送，第一次使用时创建 */
+    private OutputStream outputStream;
+    /** 响应体的字符编码，通过 Content-Type 的 charset 参数告知客户端，也是 getWriter 使用的编码 */
+    private String characterEncoding;
+    /** 文件内容的响应体，在 content 之后通过 FileChannel.transferTo 发送 */
+    private List<FileRegion> fileRegions;
+    /** 预先编码的响应头（如静态资源缓存的 Content-Type、Content-Length），以空行结束，在其余响应头之后发送 */
+    private ByteBuffer preEncodedHeader;
+    /** 共享的只读响应体（如静态资源缓存的文件内容），在 content 之后发送，不需要归还 */
+    private ByteBuffer body;
+    /** 编码后的响应头，从 BufferPool 借来，写回客户端后随 release 归还 */
+    private ByteBuffer headerBuffer;
+    /** 响应体的长度，取得响应数据时计算 */
+    private long contentLength;
+    /** 流式发送响应的通道，为 null 时响应体全部缓冲，处理完后连同 Content-Length 一次写回 */
+    private ResponseChannel channel;
+    /** 响应头是否已发送（提交），提交后响应体以 chunked 编码分块发送，不能再修改状态和响应头 */
+    private boolean committed;
+    /** 正在取得最后一块数据，刷新 Writer 时不再单独发送 */
+    private boolean completing;
+    /** 已分块发送的响应体长度 */
+    private long streamedLength;
+    /** 提交后处理出错，不发送结束块，关闭连接 */
+    private boolean aborted;
 
     public HttpResponse() {
-        this.headers = new HashMap<>();
-        this.cookies = new ArrayList<>();
-        this.content = new ByteArrayOutputStream();
+        this.content = new BufferOutputStream(BufferPool.shared());
         this.status = HttpStatus.SC_200;
     }
 
     public void addCookie(Cookie cookie) {
+        if (cookies == null) {
+            cookies = new ArrayList<>(1);
+        }
         this.cookies.add(cookie);
     }
 
     public void addHeader(String key, String value) {
-        this.headers.put(key, value);
+        this.headers.set(key, value);
     }
 
     public void setStatus(HttpStatus status) {
@@ -40,15 +80,22 @@ public class HttpResponse {
     }
 
     public void setContentType(String contentType) {
-        this.headers.put(HttpConstant.CONTENT_TYPE, contentType);
+        this.headers.set(HttpConstant.CONTENT_TYPE, contentType);
     }
 
     public void setContentLength(long length) {
-        this.headers.put(HttpConstant.CONTENT_LENGTH, length + "");
+        this.headers.set(HttpConstant.CONTENT_LENGTH, length + "");
     }
 
+    /**
+     * 设置字符编码，在 getWriter 之前调用才对 Writer 生效；Content-Type 没有 charset 参数时添加
+     */
     public void setCharacterEncoding(String charset) {
-        this.headers.put(HttpConstant.CONTENT_ENCODING, charset);
+        this.characterEncoding = charset;
+    }
+
+    public String getHeader(String key) {
+        return this.headers.get(key);
     }
 
     public void sendError(int sc, String msg) {
@@ -66,72 +113,334 @@ public class HttpResponse {
                 this.status = HttpStatus.SC_500;
                 break;
         }
-        this.content.reset();
+        resetBuffer();
         try {
-            this.headers.put(HttpConstant.CONTENT_ENCODING, "UTF-8");
+            this.characterEncoding = StandardCharsets.UTF_8.name();
             this.content.write(msg.getBytes(StandardCharsets.UTF_8));
         } catch (Exception ignore) {
         }
     }
 
+    /**
+     * 清空还未发送的响应体，包括文件内容、共享的响应体和预先编码的响应头，如处理出错时改为返回错误页面
+     */
+    public void resetBuffer() {
+        flushWriter();
+        this.content.reset();
+        closeFileRegions();
+        this.preEncodedHeader = null;
+        this.body = null;
+    }
+
     public void sendRedirect(String location) {
         addHeader(HttpConstant.LOCATION, location);
         this.status = HttpStatus.SC_302;
     }
 
     /**
-     * ByteBuffer - Scatter/Gather
+     * 设置预先编码的响应头，以空行结束；有响应体时必须包含 Content-Length，由调用者保证与响应体的长度一致
+     */
+    public void setPreEncodedHeader(ByteBuffer header) {
+        this.preEncodedHeader = header;
+    }
+
+    /**
+     * 以共享的缓冲区作为响应体，直接写回，不拷贝
+     */
+    public void setBody(ByteBuffer body) {
+        this.body = body;
+    }
+
+    /**
+     * 响应体是否只在 content 中（没有预先编码的响应头、共享的响应体和文件内容），可以整体替换，如压缩
+     */
+    public boolean isContentOnly() {
+        return !committed && preEncodedHeader == null && body == null && getFileRegions().isEmpty();
+    }
+
+    /**
+     * 替换 content（如替换为压缩后的数据），归还原来的缓冲区
+     */
+    public void replaceContent(BufferOutputStream content) {
+        flushWriter();
+        this.writer = null;
+        this.content.release();
+        this.content = content;
+    }
+
+    /**
+     * 以文件的一部分作为响应体，由连接直接从文件发送（零拷贝），替换已设置的文件内容
+     */
+    public void setFileRegion(FileRegion region) {
+        closeFileRegions();
+        addFileRegion(region);
+    }
+
+    /**
+     * 追加一段文件内容作为响应体，按添加顺序发送
+     */
+    public void addFileRegion(FileRegion region) {
+        if (fileRegions == null) {
+            fileRegions = new ArrayList<>(1);
+        }
+        fileRegions.add(region);
+    }
+
+    /**
+     * 在响应头和 content 之后发送的文件内容，没有时为空
+     */
+    public List<FileRegion> getFileRegions() {
+        return fileRegions == null ? Collections.emptyList() : fileRegions;
+    }
+
+    /**
+     * ByteBuffer - Scatter/Gather，响应体直接使用缓冲区，不拷贝；文件内容（getFileRegions）不在其中。
+     * 已提交响应头时只返回剩余的响应体（最后一块）和结束块
      */
     public ByteBuffer[] getResponseData() {
-        byte[] bytes = content.toByteArray();
-        this.headers.put(HttpConstant.CONTENT_LENGTH, bytes.length + "");
-        return new ByteBuffer[] {buildHeader(), ByteBuffer.wrap(bytes)};
+        if (committed) { // 剩余的响应体作为最后一块，以及结束块
+            completing = true;
+            flushWriter();
+            contentLength = streamedLength + content.size();
+            return chunk(content.toBuffers(), content.size(), true);
+        }
+        flushWriter();
+        contentLength = content.size() + (body == null ? 0 : body.remaining());
+        for (FileRegion region : getFileRegions()) {
+            contentLength += region.length();
+        }
+        // 预先编码的响应头中已有 Content-Length
+        if (preEncodedHeader == null) {
+            this.headers.remove(HttpConstant.CONTENT_LENGTH);
+        }
+        headerBuffer = buildHeader(preEncodedHeader == null ? contentLength : -1);
+        ByteBuffer[] buffers = content.toBuffers();
+        ByteBuffer[] data = new ByteBuffer[1 + (preEncodedHeader == null ? 0 : 1) + buffers.length + (body == null ? 0 : 1)];
+        int i = 0;
+        data[i++] = headerBuffer;
+        if (preEncodedHeader != null) {
+            data[i++] = preEncodedHeader;
+        }
+        System.arraycopy(buffers, 0, data, i, buffers.length);
+        if (body != null) {
+            data[data.length - 1] = body;
+        }
+        return data;
+    }
+
+    /**
+     * 响应写回客户端后，归还响应体占用的缓冲区，关闭文件
+     */
+    public void release() {
+        content.release();
+        closeFileRegions();
+        if (headerBuffer != null) {
+            BufferPool.shared().release(headerBuffer);
+            headerBuffer = null;
+        }
+    }
+
+    /**
+     * 设置流式发送响应的通道，之后响应体超过缓冲区大小时以 chunked 编码分块发送。
+     * 只能在可以阻塞的线程中使用（发送时可能等待客户端读走数据），且客户端需要支持 HTTP/1.1
+     */
+    public void setChannel(ResponseChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 响应头是否已经发送，发送后修改状态、响应头不再生效
+     */
+    public boolean isCommitted() {
+        return committed;
     }
 
-    private ByteBuffer buildHeader() {
-        StringBuilder sb = new StringBuilder();
+    /**
+     * 中止已提交的响应：已分块发送的数据无法撤回，不再发送结束块，由连接关闭让客户端知道响应不完整
+     */
+    public void abort() {
+        this.aborted = true;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * 是否可以分块发送：设置了通道，且响应体只在 content 中（或已经提交）
+     */
+    private boolean streamable() {
+        return channel != null && RESPONSE_BUFFER_SIZE > 0 && (committed || isContentOnly());
+    }
+
+    /**
+     * 写入 content 后调用：可以分块发送且达到缓冲区大小时，先提交响应头（第一次），再将 content 作为一块发送
+     */
+    private void streamIfNeeded() throws IOException {
+        if (content.size() < RESPONSE_BUFFER_SIZE || !streamable()) {
+            return;
+        }
+        if (!committed) {
+            commit();
+        }
+        sendChunk();
+    }
+
+    private void commit() throws IOException {
+        channel.beforeCommit(this);
+        headers.remove(HttpConstant.CONTENT_LENGTH);
+        headers.set(HttpConstant.TRANSFER_ENCODING, "chunked");
+        committed = true;
+        ByteBuffer header = buildHeader(-1);
+        channel.send(new ByteBuffer[]{header}, () -> BufferPool.shared().release(header));
+    }
+
+    /**
+     * 将 content 作为一块交给通道发送，缓冲区在写完后归还，之后的数据写入新的 content
+     */
+    private void sendChunk() throws IOException {
+        BufferOutputStream data = content;
+        content = new BufferOutputStream(BufferPool.shared());
+        streamedLength += data.size();
+        channel.send(chunk(data.toBuffers(), data.size(), false), data::release);
+    }
+
+    /**
+     * chunked 编码：十六进制的长度、CRLF、数据、CRLF；长度为 0 的数据不编码
+     * @param last 是否在最后加上结束块（0 CRLF CRLF）
+     */
+    static ByteBuffer[] chunk(ByteBuffer[] data, long size, boolean last) {
+        List<ByteBuffer> chunk = new ArrayList<>(data.length + 3);
+        if (size > 0) {
+            chunk.add(ByteBuffer.wrap((Long.toHexString(size) + HttpConstant.CRLF).getBytes(StandardCharsets.US_ASCII)));
+            chunk.addAll(Arrays.asList(data));
+            chunk.add(ByteBuffer.wrap(CRLF));
+        }
+        if (last) {
+            chunk.add(ByteBuffer.wrap(LAST_CHUNK));
+        }
+        return chunk.toArray(new ByteBuffer[0]);
+    }
+
+    private void closeFileRegions() {
+        if (fileRegions != null) {
+            for (FileRegion region : fileRegions) {
+                region.close();
+            }
+            fileRegions.clear();
+        }
+    }
+
+    /**
+     * 编码响应头，写入从 BufferPool 借来的缓冲区（读模式），由调用者归还
+     * @param contentLength 写入的 Content-Length，小于 0 表示不写
+     */
+    ByteBuffer buildHeader(long contentLength) {
+        int capacity = BufferPool.MIN_CAPACITY;
+        while (true) {
+            ByteBuffer buffer = BufferPool.shared().acquire(capacity);
+            try {
+                encodeHeader(buffer, contentLength);
+                return buffer.flip();
+            } catch (BufferOverflowException e) { // 响应头较长，换用更大的缓冲区
+                capacity = buffer.capacity() * 2;
+                BufferPool.shared().release(buffer);
+            }
+        }
+    }
+
+    private void encodeHeader(ByteBuffer buffer, long contentLength) {
         // 响应行
-        sb.append(HttpConstant.PROTOCOL)
-                .append(" ")
-                .append(status.getCode())
-                .append(" ")
-                .append(status.getReason())
-                .append(HttpConstant.CRLF);
+        HeaderEncoder.statusLine(buffer, status);
         // 头部信息
-        //GMT
-        sb.append(HttpConstant.DATE).append(": ")
-                .append(ZonedDateTime.now(ZoneOffset.of("Z")).format(DateTimeFormatter.RFC_1123_DATE_TIME))
-                .append(HttpConstant.CRLF);
-        headers.forEach((k, v) -> {
-            sb.append(k).append(": ").append(v).append(HttpConstant.CRLF);
-        });
+        HeaderEncoder.date(buffer, System.currentTimeMillis());
+        for (int i = 0; i < headers.size(); i++) {
+            HeaderEncoder.header(buffer, headers.name(i), headers.value(i), characterEncoding);
+        }
+        if (contentLength >= 0) {
+            HeaderEncoder.header(buffer, HttpConstant.CONTENT_LENGTH, contentLength);
+        }
         // Cookie
-        cookies.forEach(cookie -> {
-            sb.append(HttpConstant.SET_COOKIE)
-                    .append(": ")
-                    .append(cookie.getName())
-                    .append("=")
-                    .append(cookie.getValue())
-                    .append("; ");
-            if (cookie.getMaxAge() != -1)
-                sb.append("max-age=").append(cookie.getMaxAge());
-            sb.append(HttpConstant.CRLF);
-        });
-
-        sb.append(HttpConstant.CRLF);
-        return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.US_ASCII));
-    }
-
-    public int getContentLength() {
+        if (cookies != null) {
+            for (int i = 0; i < cookies.size(); i++) {
+                Cookie cookie = cookies.get(i);
+                HeaderEncoder.cookie(buffer, cookie.getName(), cookie.getValue(), cookie.getMaxAge());
+            }
+        }
+        // 预先编码的响应头以空行结束
+        if (preEncodedHeader == null) {
+            HeaderEncoder.crlf(buffer);
+        }
+    }
+
+    public long getContentLength() {
         // 记录日志用，写完数据再调用该方法，安全
-        return Integer.parseInt(this.headers.get(HttpConstant.CONTENT_LENGTH));
+        return contentLength;
     }
 
     public Writer getWriter() {
-        return new OutputStreamWriter(content);
+        if (writer == null) {
+            writer = new OutputStreamWriter(getOutputStream(),
+                    characterEncoding == null ? StandardCharsets.UTF_8 : Charset.forName(characterEncoding));
+        }
+        return writer;
     }
 
     public OutputStream getOutputStream() {
+        flushWriter();
+        if (outputStream == null) {
+            outputStream = new ResponseOutputStream();
+        }
+        return outputStream;
+    }
+
+    /**
+     * 缓冲的响应体，用于整体读取或替换（如压缩、预先编码）
+     */
+    BufferOutputStream getContent() {
+        flushWriter();
         return content;
     }
+
+    /**
+     * Writer 内部有缓冲，取得响应数据前需要刷新
+     */
+    private void flushWriter() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException ignore) { // 已被关闭，关闭时已刷新
+            }
+        }
+    }
+
+    /**
+     * 写入 content 的输出流：写入后检查是否需要分块发送；提交响应头后 flush 立即发送已写入的数据
+     */
+    private class ResponseOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            content.write(b);
+            streamIfNeeded();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                // 可以分块发送时，每块不超过缓冲区大小
+                int n = streamable() ? (int) Math.min(len, Math.max(RESPONSE_BUFFER_SIZE - content.size(), 1)) : len;
+                content.write(b, off, n);
+                off += n;
+                len -= n;
+                streamIfNeeded();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (committed && !completing && content.size() > 0) {
+                sendChunk();
+            }
+        }
+    }
 }
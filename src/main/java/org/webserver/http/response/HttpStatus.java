@@ -4,12 +4,16 @@ import org.webserver.constant.HttpConstant;
 
 public enum HttpStatus {
     SC_200(200, "OK"),
+    SC_206(206, "Partial Content"),
     SC_302(302, "Move Temporarily"),
+    SC_304(304, "Not Modified"),
     SC_400(400, "Bad Request"),
     SC_403(403, "Forbidden"),
     SC_404(404, "File Not Found"),
     SC_405(405, "Method Not Allowed"),
-    SC_500(500, "Internal Server Error");
+    SC_416(416, "Range Not Satisfiable"),
+    SC_500(500, "Internal Server Error"),
+    SC_503(503, "Service Unavailable");
 
     private int code;
     private String reason;
@@ -0,0 +1,71 @@
+package org.webserver.http.response;
+
+import org.webserver.constant.HttpConstant;
+import org.webserver.util.ErrorResponseUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 预先编码好的固定响应（响应头和响应体），如过载时的 503，
+ * 每次发送时复用同一块只读的直接缓冲区，不需要构建 HttpResponse 和分配内存。
+ * 不包含 Date 响应头（5xx 响应可以不发送 Date）。
+ */
+public final class PreEncodedResponse {
+    private final ByteBuffer data;
+
+    private PreEncodedResponse(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        this.data = buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * 构造错误响应，响应体与 ErrorResponseUtil 渲染的错误页面相同
+     * @param headers 其他响应头，依次为名、值
+     */
+    public static PreEncodedResponse of(HttpStatus status, String msg, String... headers) {
+        HttpResponse response = new HttpResponse();
+        byte[] body;
+        try {
+            ErrorResponseUtil.renderErrorResponse(response, status, msg);
+            ByteBuffer content = ByteBuffer.allocate((int) response.getContent().size());
+            for (ByteBuffer buffer : response.getContent().toBuffers()) {
+                content.put(buffer);
+            }
+            body = content.array();
+        } finally {
+            response.release();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(HttpConstant.PROTOCOL).append(' ').append(status.getCode()).append(' ')
+                .append(status.getReason()).append(HttpConstant.CRLF);
+        sb.append(HttpConstant.CONTENT_TYPE).append(": text/html; charset=utf-8").append(HttpConstant.CRLF);
+        sb.append(HttpConstant.CONTENT_LENGTH).append(": ").append(body.length).append(HttpConstant.CRLF);
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            sb.append(headers[i]).append(": ").append(headers[i + 1]).append(HttpConstant.CRLF);
+        }
+        sb.append(HttpConstant.CRLF);
+        byte[] header = sb.toString().getBytes(StandardCharsets.US_ASCII);
+
+        byte[] bytes = new byte[header.length + body.length];
+        System.arraycopy(header, 0, bytes, 0, header.length);
+        System.arraycopy(body, 0, bytes, header.length, body.length);
+        return new PreEncodedResponse(bytes);
+    }
+
+    /**
+     * 用于发送的缓冲区，与其他发送共享数据，position 和 limit 独立
+     */
+    public ByteBuffer duplicate() {
+        return data.duplicate();
+    }
+
+    /**
+     * 响应的字节数
+     */
+    public int size() {
+        return data.remaining();
+    }
+}
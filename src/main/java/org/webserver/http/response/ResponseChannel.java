@@ -0,0 +1,22 @@
+package org.webserver.http.response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 流式发送响应的通道：响应体超过缓冲区大小时，HttpResponse 先提交响应头，再通过该通道分块发送响应体。
+ * 由处理请求的工作线程调用，连接的写队列积压过多时 send 阻塞，直到客户端读走数据（背压）。
+ */
+public interface ResponseChannel {
+
+    /**
+     * 提交响应头之前调用，用于补充连接相关的响应头（如 Connection、Set-Cookie）
+     */
+    void beforeCommit(HttpResponse response);
+
+    /**
+     * 发送一段数据，写完或连接关闭后调用 releaser 释放数据占用的资源（包括抛出异常时）
+     * @throws IOException 连接已关闭或写入失败
+     */
+    void send(ByteBuffer[] data, Runnable releaser) throws IOException;
+}
@@ -0,0 +1,66 @@
+package org.webserver.http.response;
+
+import java.util.Arrays;
+
+/**
+ * 响应头：名、值保存在两个数组中，按设置的顺序输出；同名的响应头只保留最后设置的值。
+ * 响应头通常只有几个，线性查找比 HashMap 更快，遍历时也不需要创建迭代器
+ */
+final class ResponseHeaders {
+    private String[] names = new String[8];
+    private String[] values = new String[8];
+    private int size;
+
+    void set(String name, String value) {
+        int index = indexOf(name);
+        if (index != -1) {
+            values[index] = value;
+            return;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+    }
+
+    String get(String name) {
+        int index = indexOf(name);
+        return index == -1 ? null : values[index];
+    }
+
+    void remove(String name) {
+        int index = indexOf(name);
+        if (index == -1) {
+            return;
+        }
+        size--;
+        System.arraycopy(names, index + 1, names, index, size - index);
+        System.arraycopy(values, index + 1, values, index, size - index);
+        names[size] = null;
+        values[size] = null;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    String value(int index) {
+        return values[index];
+    }
+}
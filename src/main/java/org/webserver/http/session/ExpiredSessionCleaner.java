@@ -1,6 +1,5 @@
 package org.webserver.http.session;
 
-import org.webserver.connector.ExpiredConnectionCleaner;
 import org.webserver.constant.ServerConfig;
 import org.webserver.container.Container;
 
@@ -13,9 +12,9 @@ import java.util.logging.Logger;
  * 定时清理过期的Session
  */
 public class ExpiredSessionCleaner {
-    private final static Logger logger = Logger.getLogger(ExpiredConnectionCleaner.class.getPackageName());
+    private final static Logger logger = Logger.getLogger(ExpiredSessionCleaner.class.getPackageName());
     private final static long SESSION_CLEANING_CYCLE = Long.parseLong(System.getProperty(ServerConfig.SESSION_CLEANING_CYCLE));
-    private final static ScheduledExecutorService schedule = Executors.newSingleThreadScheduledExecutor();
+    private final ScheduledExecutorService schedule = Executors.newSingleThreadScheduledExecutor();
     private Container container;
 
     public ExpiredSessionCleaner(Container container) {
@@ -0,0 +1,100 @@
+package org.webserver.resource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Range 请求头中的一个字节范围（闭区间），已按文件长度截断
+ */
+final class ByteRange {
+    /** 一个请求最多包含的范围数，超过时忽略 Range，返回整个文件，避免大量细碎的范围消耗资源 */
+    static final int MAX_RANGES = 16;
+
+    final long first;
+    final long last;
+
+    ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    long length() {
+        return last - first + 1;
+    }
+
+    /**
+     * 解析 Range 请求头：bytes=0-499、bytes=500-、bytes=-500（最后 500 字节），可以有多个，以逗号分隔。
+     * 重叠或相邻的范围合并为一个，按起始位置排序
+     * @param length 文件长度
+     * @return 格式错误、单位不是 bytes 或范围过多时返回 null（忽略 Range）；没有可满足的范围时返回空列表（416）
+     */
+    static List<ByteRange> parse(String header, long length) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash == -1) {
+                return null;
+            }
+            long first;
+            long last;
+            try {
+                if (dash == 0) { // 后缀范围
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    first = Math.max(length - suffix, 0);
+                    last = suffix == 0 ? -1 : length - 1;
+                } else {
+                    first = Long.parseLong(spec.substring(0, dash));
+                    last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+                    if (first < 0 || last < first) {
+                        return null;
+                    }
+                    last = Math.min(last, length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (first < length && first <= last) { // 可满足
+                ranges.add(new ByteRange(first, last));
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(range -> range.first));
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.first <= current.last + 1) {
+                current = new ByteRange(current.first, Math.max(current.last, next.last));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return first + "-" + last;
+    }
+}
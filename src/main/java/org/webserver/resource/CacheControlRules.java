@@ -0,0 +1,71 @@
+package org.webserver.resource;
+
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 静态资源的 Cache-Control 规则：按配置顺序匹配资源路径（相对于 webapp 根目录），使用第一条匹配的规则。
+ *
+ * 配置格式为以 ; 分隔的若干条 "glob=Cache-Control 值"，如：
+ * <pre>
+ * **.{css,js}=public, max-age=31536000; *.html=no-cache
+ * </pre>
+ * glob 的语法同 FileSystem.getPathMatcher，* 不跨目录，** 跨目录。
+ */
+final class CacheControlRules implements Function<String, String> {
+    private final List<PathMatcher> matchers = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * 解析配置，配置为空时没有规则
+     * @throws IllegalArgumentException 规则格式错误
+     */
+    static CacheControlRules parse(String config) {
+        CacheControlRules rules = new CacheControlRules();
+        if (config == null) {
+            return rules;
+        }
+        for (String rule : config.split(";")) {
+            if (rule.isBlank()) {
+                continue;
+            }
+            int idx = rule.indexOf('=');
+            String glob = idx == -1 ? "" : rule.substring(0, idx).trim();
+            String value = idx == -1 ? "" : rule.substring(idx + 1).trim();
+            if (glob.isEmpty() || value.isEmpty()) {
+                throw new IllegalArgumentException("Cache-Control 规则格式错误：" + rule);
+            }
+            rules.matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+            rules.values.add(value);
+        }
+        return rules;
+    }
+
+    /**
+     * @param name 相对于根目录的路径
+     * @return 匹配的 Cache-Control 值，没有匹配的规则时返回 null
+     */
+    @Override
+    public String apply(String name) {
+        if (matchers.isEmpty()) {
+            return null;
+        }
+        Path path;
+        try {
+            path = Path.of(name);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        for (int i = 0; i < matchers.size(); i++) {
+            if (matchers.get(i).matches(path)) {
+                return values.get(i);
+            }
+        }
+        return null;
+    }
+}
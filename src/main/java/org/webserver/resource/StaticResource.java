@@ -0,0 +1,269 @@
+package org.webserver.resource;
+
+import org.webserver.constant.HttpConstant;
+import org.webserver.http.response.GzipEncoder;
+import org.webserver.util.HttpDateUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * 缓存的静态资源：文件的元数据、预先编码的响应头（Content-Type、Content-Length、ETag 等）及文件内容。
+ * 超过缓存大小限制的文件只缓存元数据和响应头，内容在发送时从文件读取。
+ * ETag 由文件大小和修改时间生成，文件被修改后重新加载时随之改变，作为强验证器。
+ * 可以压缩的文件同时缓存一份 gzip 编码的内容（gzip），优先使用同目录下不早于原文件的 .gz 文件，
+ * 没有时加载时压缩；gzip 编码的内容有自己的 ETag，不支持 Range。
+ * 除 checkedAt 外不可变，缓冲区只读，多个响应共享时使用 duplicate。
+ */
+final class StaticResource {
+    /** 缓存中记录的不存在的路径（StaticResourceCache#getCached），只用于比较 */
+    static final StaticResource MISSING = new StaticResource(Path.of(""), null, null, FileTime.fromMillis(0), 0,
+            "\"\"", null, false, null, null, false, 0);
+
+    final Path path;
+    final String mimeType;
+    final long length;
+    final FileTime lastModified;
+    /** 强验证器，带引号，如 "1a2b-18c4f3e2a10" */
+    final String etag;
+    /** HTTP 日期格式的修改时间 */
+    final String lastModifiedDate;
+    /** 可以为 null */
+    final String cacheControl;
+    /** 内容编码，未编码时为 null */
+    final String contentEncoding;
+    /** gzip 编码的内容，没有时为 null */
+    final StaticResource gzip;
+    /** 是否有（或可能有）其他编码的内容，需要发送 Vary: Accept-Encoding */
+    final boolean vary;
+    /** 预先编码的响应头：若干行，以空行结束 */
+    private final ByteBuffer header;
+    /** 304 响应预先编码的响应头：ETag、Last-Modified、Cache-Control，没有 Content-Length */
+    private final ByteBuffer notModifiedHeader;
+    /** 文件内容，未缓存内容时为 null */
+    private final ByteBuffer body;
+    /** 上次检查文件是否被修改的时间 */
+    volatile long checkedAt;
+
+    private StaticResource(Path path, String mimeType, String cacheControl, FileTime lastModified, long length,
+                           String etag, String contentEncoding, boolean vary, ByteBuffer body, StaticResource gzip,
+                           boolean direct, long now) {
+        this.path = path;
+        this.mimeType = mimeType;
+        this.cacheControl = cacheControl;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.etag = etag;
+        this.lastModifiedDate = HttpDateUtil.format(lastModified.toMillis());
+        this.contentEncoding = contentEncoding;
+        this.vary = vary;
+        this.gzip = gzip;
+        this.body = body == null ? null : body.asReadOnlyBuffer();
+        this.header = encode(validatorHeaders() + contentHeaders(), direct).asReadOnlyBuffer();
+        this.notModifiedHeader = encode(validatorHeaders() + HttpConstant.CRLF, direct).asReadOnlyBuffer();
+        this.checkedAt = now;
+    }
+
+    /**
+     * 读取文件，不超过 maxBodySize 时缓存文件内容
+     * @param direct 响应头和文件内容是否保存在直接缓冲区中
+     */
+    static StaticResource load(Path path, String mimeType, String cacheControl, BasicFileAttributes attributes,
+                               long maxBodySize, boolean direct, long now) throws IOException {
+        long length = attributes.size();
+        FileTime lastModified = attributes.lastModifiedTime();
+        String etag = Long.toHexString(length) + "-" + Long.toHexString(lastModified.toMillis());
+        ByteBuffer body = length <= maxBodySize ? read(path, length, direct) : null;
+
+        StaticResource gzip = null;
+        boolean vary = body != null && GzipEncoder.isCompressible(mimeType, length);
+        if (vary) {
+            ByteBuffer compressed = readPrecompressed(path, lastModified, maxBodySize, direct);
+            if (compressed == null) {
+                compressed = compress(body, direct);
+            }
+            if (compressed.remaining() < length) { // 压缩后没有变小时不使用
+                gzip = new StaticResource(path, mimeType, cacheControl, lastModified, compressed.remaining(),
+                        "\"" + etag + "-gz\"", GzipEncoder.GZIP, true, compressed, null, direct, now);
+            }
+        }
+        return new StaticResource(path, mimeType, cacheControl, lastModified, length,
+                "\"" + etag + "\"", null, vary, body, gzip, direct, now);
+    }
+
+    private static ByteBuffer read(Path path, long length, boolean direct) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            ByteBuffer buffer = direct ? ByteBuffer.allocateDirect((int) length) : ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) { // 读取期间文件被截断
+                    throw new IOException("文件长度发生了变化：" + path);
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * 读取预先压缩的 .gz 文件（如构建时生成），比原文件旧时视为过期
+     * @return 没有可用的 .gz 文件时返回 null
+     */
+    private static ByteBuffer readPrecompressed(Path path, FileTime lastModified, long maxBodySize,
+                                                boolean direct) throws IOException {
+        Path gz = path.resolveSibling(path.getFileName() + ".gz");
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(gz, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile() || attributes.size() > maxBodySize
+                || attributes.lastModifiedTime().compareTo(lastModified) < 0) {
+            return null;
+        }
+        return read(gz, attributes.size(), direct);
+    }
+
+    private static ByteBuffer compress(ByteBuffer body, boolean direct) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.remaining() / 4);
+        GzipEncoder.gzip(new ByteBuffer[]{body}, out);
+        byte[] bytes = out.toByteArray();
+        return direct ? ByteBuffer.allocateDirect(bytes.length).put(bytes).flip() : ByteBuffer.wrap(bytes);
+    }
+
+    private String validatorHeaders() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(HttpConstant.ETAG).append(": ").append(etag).append(HttpConstant.CRLF);
+        sb.append(HttpConstant.LAST_MODIFIED).append(": ").append(lastModifiedDate).append(HttpConstant.CRLF);
+        if (cacheControl != null) {
+            sb.append(HttpConstant.CACHE_CONTROL).append(": ").append(cacheControl).append(HttpConstant.CRLF);
+        }
+        if (vary) {
+            sb.append(HttpConstant.VARY).append(": ").append(HttpConstant.ACCEPT_ENCODING).append(HttpConstant.CRLF);
+        }
+        return sb.toString();
+    }
+
+    private String contentHeaders() {
+        StringBuilder sb = new StringBuilder();
+        if (mimeType != null) {
+            sb.append(HttpConstant.CONTENT_TYPE).append(": ").append(mimeType).append(HttpConstant.CRLF);
+        }
+        if (contentEncoding != null) {
+            sb.append(HttpConstant.CONTENT_ENCODING).append(": ").append(contentEncoding).append(HttpConstant.CRLF);
+        }
+        sb.append(HttpConstant.CONTENT_LENGTH).append(": ").append(length).append(HttpConstant.CRLF);
+        if (contentEncoding == null) {
+            sb.append(HttpConstant.ACCEPT_RANGES).append(": bytes").append(HttpConstant.CRLF);
+        }
+        sb.append(HttpConstant.CRLF);
+        return sb.toString();
+    }
+
+    private static ByteBuffer encode(String header, boolean direct) {
+        byte[] bytes = header.getBytes(StandardCharsets.US_ASCII);
+        return direct ? ByteBuffer.allocateDirect(bytes.length).put(bytes).flip() : ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * 根据客户端是否接受 gzip 选择发送的内容
+     */
+    StaticResource select(boolean acceptsGzip) {
+        return acceptsGzip && gzip != null ? gzip : this;
+    }
+
+    /**
+     * 文件是否未被修改
+     */
+    boolean matches(BasicFileAttributes attributes) {
+        return attributes.size() == length && attributes.lastModifiedTime().equals(lastModified);
+    }
+
+    /**
+     * 请求的 If-None-Match 是否与 ETag 匹配（弱比较，忽略 W/ 前缀），* 匹配任意 ETag
+     */
+    boolean matchesETag(String ifNoneMatch) {
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 自 If-Modified-Since 的时间以来是否未被修改，HTTP 日期精确到秒
+     * @param since 毫秒时间戳
+     */
+    boolean notModifiedSince(long since) {
+        return lastModified.toMillis() / 1000 <= since / 1000;
+    }
+
+    /**
+     * If-Range 是否与资源匹配：ETag 使用强比较（弱 ETag 不匹配），日期须与修改时间相同
+     */
+    boolean matchesIfRange(String ifRange) {
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = HttpDateUtil.parse(ifRange);
+        return date != -1 && date / 1000 == lastModified.toMillis() / 1000;
+    }
+
+    /**
+     * 预先编码的响应头，每次调用返回独立的 position
+     */
+    ByteBuffer header() {
+        return header.duplicate();
+    }
+
+    /**
+     * 304 响应预先编码的响应头
+     */
+    ByteBuffer notModifiedHeader() {
+        return notModifiedHeader.duplicate();
+    }
+
+    /**
+     * 文件内容，未缓存时为 null，每次调用返回独立的 position
+     */
+    ByteBuffer body() {
+        return body == null ? null : body.duplicate();
+    }
+
+    /**
+     * 文件内容的一部分，未缓存时为 null
+     */
+    ByteBuffer body(long position, long count) {
+        if (body == null) {
+            return null;
+        }
+        ByteBuffer slice = body.duplicate();
+        slice.position((int) position).limit((int) (position + count));
+        return slice.slice();
+    }
+
+    boolean hasBody() {
+        return body != null;
+    }
+
+    /**
+     * 占用的缓存字节数
+     */
+    int size() {
+        return header.capacity() + notModifiedHeader.capacity() + (body == null ? 0 : body.capacity())
+                + (gzip == null ? 0 : gzip.size());
+    }
+}
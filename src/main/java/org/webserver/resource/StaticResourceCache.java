@@ -0,0 +1,261 @@
+package org.webserver.resource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 静态资源缓存：缓存根目录下文件的预先编码的响应头和文件内容，命中时不再访问文件系统。
+ *
+ * 缓存的总字节数有上限，超过时淘汰最久未访问的资源（LRU）。距上次检查超过 checkInterval 后，
+ * 再次访问时重新读取文件属性，修改时间或大小发生变化则重新加载。不存在的路径同样缓存 checkInterval，
+ * 重复请求同一个不存在的路径时直接返回。
+ *
+ * 文件修改后重新加载，响应头中的 ETag、Last-Modified 随之更新。
+ *
+ * 由轮询线程和工作线程并发访问，缓存的增删在同一把锁中进行，读取文件在锁外进行。
+ */
+public class StaticResourceCache {
+    /** 最多缓存的不存在的路径数，超过时淘汰最早加入的 */
+    private static final int MAX_NEGATIVE_ENTRIES = 1024;
+
+    private final Path root;
+    /** 缓存的总字节数上限，不大于 0 时不缓存 */
+    private final long maxBytes;
+    /** 内容被缓存的单个文件的大小上限，更大的文件只缓存响应头，内容从文件发送 */
+    private final long maxFileSize;
+    /** 毫秒，检查文件是否被修改的最小间隔 */
+    private final long checkInterval;
+    /** 文件内容是否缓存在直接缓冲区中 */
+    private final boolean direct;
+    /** 文件名到 MIME 类型的映射 */
+    private final Function<String, String> mimeTypes;
+    /** 文件名到 Cache-Control 的映射 */
+    private final Function<String, String> cacheControl;
+
+    /** 按访问顺序排列，最久未访问的在前 */
+    private final LinkedHashMap<String, StaticResource> entries = new LinkedHashMap<>(64, 0.75f, true);
+    /** 不存在的路径及其过期时间 */
+    private final LinkedHashMap<String, Long> negativeEntries = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_NEGATIVE_ENTRIES;
+        }
+    };
+    /** 缓存占用的字节数 */
+    private long bytesCached;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder negativeHitCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public StaticResourceCache(Path root, long maxBytes, long maxFileSize, long checkInterval,
+                               boolean direct, Function<String, String> mimeTypes,
+                               Function<String, String> cacheControl) {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        // 缓冲区的容量为 int，内容不超过缓存上限
+        this.maxFileSize = Math.min(Math.min(maxFileSize, maxBytes), Integer.MAX_VALUE - 8);
+        this.checkInterval = checkInterval;
+        this.direct = direct;
+        this.mimeTypes = mimeTypes;
+        this.cacheControl = cacheControl;
+    }
+
+    /**
+     * 获取资源，优先从缓存中获取
+     * @param name 相对于根目录的路径，如 css/index.css
+     * @return 文件不存在、是目录或不在根目录下时返回 null
+     */
+    StaticResource get(String name) throws IOException {
+        long now = System.currentTimeMillis();
+        StaticResource cached;
+        synchronized (this) {
+            cached = entries.get(name);
+            if (cached != null && now - cached.checkedAt < checkInterval) {
+                hitCount.increment();
+                return cached;
+            }
+            Long expiry = negativeEntries.get(name);
+            if (expiry != null) {
+                if (expiry > now) {
+                    negativeHitCount.increment();
+                    return null;
+                }
+                negativeEntries.remove(name);
+            }
+        }
+
+        Path path = resolve(name);
+        BasicFileAttributes attributes = path == null ? null : readAttributes(path);
+        if (attributes == null || !attributes.isRegularFile()) {
+            missCount.increment();
+            synchronized (this) {
+                remove(name);
+                if (maxBytes > 0) {
+                    negativeEntries.put(name, now + checkInterval);
+                }
+            }
+            return null;
+        }
+        if (cached != null && cached.matches(attributes)) { // 未被修改
+            cached.checkedAt = now;
+            hitCount.increment();
+            return cached;
+        }
+
+        missCount.increment();
+        StaticResource resource = StaticResource.load(path, mimeTypes.apply(name), cacheControl.apply(name),
+                attributes, maxBytes > 0 ? maxFileSize : -1, direct, now);
+        if (maxBytes > 0) {
+            put(name, resource);
+        }
+        return resource;
+    }
+
+    /**
+     * 只从缓存中获取资源，不访问文件系统
+     * @return 资源在缓存中、有文件内容且不需要检查是否被修改时返回该资源；缓存的不存在的路径返回 StaticResource.MISSING；
+     *         否则返回 null
+     */
+    synchronized StaticResource getCached(String name) {
+        long now = System.currentTimeMillis();
+        StaticResource cached = entries.get(name);
+        if (cached != null) {
+            if (cached.hasBody() && now - cached.checkedAt < checkInterval) {
+                hitCount.increment();
+                return cached;
+            }
+            return null;
+        }
+        Long expiry = negativeEntries.get(name);
+        if (expiry != null && expiry > now) {
+            negativeHitCount.increment();
+            return StaticResource.MISSING;
+        }
+        return null;
+    }
+
+    /**
+     * 资源是否在缓存中且不需要检查是否被修改（包括缓存的不存在的路径），即获取时不会访问文件系统
+     */
+    public synchronized boolean isCached(String name) {
+        long now = System.currentTimeMillis();
+        StaticResource cached = entries.get(name);
+        if (cached != null) {
+            return cached.hasBody() && now - cached.checkedAt < checkInterval;
+        }
+        Long expiry = negativeEntries.get(name);
+        return expiry != null && expiry > now;
+    }
+
+    /**
+     * 预先加载根目录下的文件，直到达到缓存上限
+     * @return 加载的文件数
+     */
+    public int preload() throws IOException {
+        if (maxBytes <= 0) {
+            return 0;
+        }
+        int count = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext() && getBytesCached() < maxBytes) {
+                String name = root.relativize(iterator.next()).toString().replace('\\', '/');
+                if (get(name) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private synchronized void put(String name, StaticResource resource) {
+        remove(name);
+        negativeEntries.remove(name);
+        if (resource.size() > maxBytes) {
+            return;
+        }
+        entries.put(name, resource);
+        bytesCached += resource.size();
+        Iterator<StaticResource> iterator = entries.values().iterator();
+        while (bytesCached > maxBytes && iterator.hasNext()) { // 淘汰最久未访问的
+            StaticResource eldest = iterator.next();
+            iterator.remove();
+            bytesCached -= eldest.size();
+            evictionCount.increment();
+        }
+    }
+
+    private void remove(String name) {
+        StaticResource removed = entries.remove(name);
+        if (removed != null) {
+            bytesCached -= removed.size();
+        }
+    }
+
+    /**
+     * 解析为根目录下的路径，不允许通过 .. 访问根目录之外的文件
+     */
+    private Path resolve(String name) {
+        try {
+            Path path = root.resolve(name).normalize();
+            return path.startsWith(root) ? path : null;
+        } catch (IllegalArgumentException e) { // 非法的路径，如包含 \0
+            return null;
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 命中缓存的不存在路径的次数
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 命中率，包括命中缓存的不存在路径
+     */
+    public double getHitRatio() {
+        long hits = getHitCount() + getNegativeHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public synchronized long getBytesCached() {
+        return bytesCached;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+}
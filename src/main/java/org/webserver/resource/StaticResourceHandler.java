@@ -0,0 +1,292 @@
+package org.webserver.resource;
+
+import org.webserver.constant.HttpConstant;
+import org.webserver.constant.ServerConfig;
+import org.webserver.http.HttpMethod;
+import org.webserver.http.request.HttpRequest;
+import org.webserver.http.response.FileRegion;
+import org.webserver.http.response.GzipEncoder;
+import org.webserver.http.response.HttpResponse;
+import org.webserver.http.response.HttpStatus;
+import org.webserver.util.ErrorResponseUtil;
+import org.webserver.util.HttpDateUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * 静态资源处理器：请求的路径没有映射到控制器方法时，返回 WEBAPP 根目录下的文件。
+ * 响应带有 ETag 和 Last-Modified，条件请求（If-None-Match、If-Modified-Since）匹配时返回没有响应体的 304。
+ * 支持 Range 请求（一个或多个范围，If-Range），返回 206 或 416，响应体通过 FileChannel.transferTo 发送。
+ * 客户端接受 gzip 时发送缓存中预先压缩的内容
+ */
+public class StaticResourceHandler {
+    private final static Logger logger = Logger.getLogger(StaticResourceHandler.class.getPackageName());
+
+    /** 缓存的总字节数上限，不大于 0 时不缓存 */
+    private final static long STATIC_CACHE_MAX_BYTES =
+            Long.getLong(ServerConfig.STATIC_CACHE_MAX_BYTES, 64 * 1024 * 1024);
+
+    /** 内容被缓存的单个文件的大小上限，更大的文件直接从文件发送 */
+    private final static long STATIC_CACHE_MAX_FILE_SIZE =
+            Long.getLong(ServerConfig.STATIC_CACHE_MAX_FILE_SIZE, 1024 * 1024);
+
+    /** 检查缓存的文件是否被修改的最小间隔（毫秒） */
+    private final static long STATIC_CACHE_CHECK_INTERVAL =
+            Long.getLong(ServerConfig.STATIC_CACHE_CHECK_INTERVAL, 1000);
+
+    /** 启动时是否预先加载静态资源 */
+    private final static boolean STATIC_CACHE_PRELOAD = Boolean.getBoolean(ServerConfig.STATIC_CACHE_PRELOAD);
+
+    /** 文件内容是否缓存在直接缓冲区中（写回时不需要再拷贝到直接缓冲区） */
+    private final static boolean STATIC_CACHE_DIRECT =
+            Boolean.parseBoolean(System.getProperty(ServerConfig.STATIC_CACHE_DIRECT, "true"));
+
+    /** 按路径匹配的 Cache-Control 规则 */
+    private final static CacheControlRules STATIC_CACHE_CONTROL =
+            CacheControlRules.parse(System.getProperty(ServerConfig.STATIC_CACHE_CONTROL));
+
+    /** MIME TYPE */
+    private final Properties mime = new Properties();
+
+    private final StaticResourceCache cache;
+
+    public StaticResourceHandler(Path root) {
+        loadMimeTypes();
+        this.cache = new StaticResourceCache(root, STATIC_CACHE_MAX_BYTES, STATIC_CACHE_MAX_FILE_SIZE,
+                STATIC_CACHE_CHECK_INTERVAL, STATIC_CACHE_DIRECT, this::mimeType, STATIC_CACHE_CONTROL);
+        if (STATIC_CACHE_PRELOAD) {
+            try {
+                int count = cache.preload();
+                logger.info(String.format("预先加载了 %d 个静态资源，共 %d 字节", count, cache.getBytesCached()));
+            } catch (IOException e) {
+                logger.warning("预先加载静态资源失败：" + e.getMessage());
+            }
+        }
+    }
+
+    private void loadMimeTypes() {
+        InputStream mimeInput = ClassLoader.getSystemResourceAsStream("mime.properties");
+        if (mimeInput != null) {
+            try (mimeInput) {
+                this.mime.load(mimeInput);
+            } catch (IOException e) {
+                logger.warning("加载配置文件 mime.properties 失败");
+                e.printStackTrace();
+            }
+        } else {
+            logger.warning("缺少配置文件 mime.properties");
+        }
+    }
+
+    /**
+     * 根据扩展名获取 MIME 类型，未知时返回 null
+     */
+    private String mimeType(String name) {
+        return mime.getProperty(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    /**
+     * 处理静态资源请求
+     */
+    public HttpResponse handle(HttpRequest request) {
+        String name = resourceName(request);
+        try {
+            return respond(request, name, cache.get(name));
+        } catch (IOException e) {
+            return serverError(name, e);
+        }
+    }
+
+    /**
+     * 只使用缓存处理请求、不访问文件系统，由轮询线程调用，资源只查找一次
+     * @return 资源不在缓存中、需要检查是否被修改，或是 Range 请求（可能需要打开文件）时返回 null，由工作线程调用 handle
+     */
+    public HttpResponse handleCached(HttpRequest request) {
+        if (request.getHeader(HttpConstant.RANGE) != null) {
+            return null;
+        }
+        String name = resourceName(request);
+        StaticResource resource = cache.getCached(name);
+        if (resource == null) {
+            return null;
+        }
+        try {
+            return respond(request, name, resource == StaticResource.MISSING ? null : resource);
+        } catch (IOException e) {
+            return serverError(name, e);
+        }
+    }
+
+    /**
+     * @param resource 请求的资源，不存在时为 null
+     */
+    private HttpResponse respond(HttpRequest request, String name, StaticResource resource) throws IOException {
+        HttpResponse response = new HttpResponse();
+        // 404
+        if (resource == null) {
+            ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_404, request.getRequestURI());
+            logger.warning(String.format("未找到文件：%s", name));
+            return response;
+        }
+        // Range 请求只发送未编码的内容
+        if (request.getHeader(HttpConstant.RANGE) == null) {
+            resource = resource.select(GzipEncoder.acceptsGzip(request.getHeader(HttpConstant.ACCEPT_ENCODING)));
+        }
+        // 304
+        if (notModified(request, resource)) {
+            response.setStatus(HttpStatus.SC_304);
+            response.setPreEncodedHeader(resource.notModifiedHeader());
+            return response;
+        }
+        // 206、416
+        List<ByteRange> ranges = requestedRanges(request, resource);
+        if (ranges != null) {
+            if (ranges.isEmpty()) {
+                ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_416,
+                        request.getHeader(HttpConstant.RANGE));
+                response.addHeader(HttpConstant.CONTENT_RANGE, "bytes */" + resource.length);
+            } else {
+                partialContent(response, resource, ranges);
+            }
+            return response;
+        }
+        response.setPreEncodedHeader(resource.header());
+        if (resource.length == 0) { // 空文件只发送响应头
+            return response;
+        }
+        if (resource.hasBody()) {
+            response.setBody(resource.body());
+        } else {
+            // 文件内容不读入内存，写回时由内核直接从文件发送到 socket，写完后关闭文件
+            FileChannel channel = FileChannel.open(resource.path);
+            response.setFileRegion(new FileRegion(channel, 0, resource.length));
+        }
+        return response;
+    }
+
+    /**
+     * 500
+     */
+    private HttpResponse serverError(String name, IOException e) {
+        HttpResponse response = new HttpResponse();
+        ErrorResponseUtil.renderErrorResponse(response, HttpStatus.SC_500, e.getMessage());
+        logger.warning(String.format("读取静态文件失败（%s）：%s", name, e.getMessage()));
+        return response;
+    }
+
+    /**
+     * 条件请求的验证器是否与资源匹配，只对 GET、HEAD 请求生效；有 If-None-Match 时忽略 If-Modified-Since
+     */
+    static boolean notModified(HttpRequest request, StaticResource resource) {
+        if (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader(HttpConstant.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return resource.matchesETag(ifNoneMatch);
+        }
+        String ifModifiedSince = request.getHeader(HttpConstant.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            long since = HttpDateUtil.parse(ifModifiedSince);
+            return since != -1 && resource.notModifiedSince(since);
+        }
+        return false;
+    }
+
+    /**
+     * 请求的范围，只对 GET 请求生效，If-Range 不匹配（资源已被修改）时返回整个文件
+     * @return 不是有效的 Range 请求时返回 null，没有可满足的范围时返回空列表
+     */
+    private static List<ByteRange> requestedRanges(HttpRequest request, StaticResource resource) {
+        String range = request.getHeader(HttpConstant.RANGE);
+        if (range == null || request.getMethod() != HttpMethod.GET) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpConstant.IF_RANGE);
+        if (ifRange != null && !resource.matchesIfRange(ifRange)) {
+            return null;
+        }
+        return ByteRange.parse(range, resource.length);
+    }
+
+    /**
+     * 206 响应：一个范围时直接发送该范围；多个范围时使用 multipart/byteranges，每个部分的头部作为 FileRegion 的 prefix
+     */
+    static void partialContent(HttpResponse response, StaticResource resource, List<ByteRange> ranges) throws IOException {
+        response.setStatus(HttpStatus.SC_206);
+        response.addHeader(HttpConstant.ETAG, resource.etag);
+        response.addHeader(HttpConstant.LAST_MODIFIED, resource.lastModifiedDate);
+        if (resource.cacheControl != null) {
+            response.addHeader(HttpConstant.CACHE_CONTROL, resource.cacheControl);
+        }
+        response.addHeader(HttpConstant.ACCEPT_RANGES, "bytes");
+        if (resource.vary) {
+            response.addHeader(HttpConstant.VARY, HttpConstant.ACCEPT_ENCODING);
+        }
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            if (resource.mimeType != null) {
+                response.setContentType(resource.mimeType);
+            }
+            response.addHeader(HttpConstant.CONTENT_RANGE, contentRange(range, resource.length));
+            if (resource.hasBody()) {
+                response.setBody(resource.body(range.first, range.length()));
+            } else {
+                FileChannel channel = FileChannel.open(resource.path);
+                response.setFileRegion(new FileRegion(channel, range.first, range.length()));
+            }
+            return;
+        }
+
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        response.setContentType(HttpConstant.MULTIPART_BYTERANGES + "; boundary=" + boundary);
+        // 各部分共享一个文件，关闭任意一个 FileRegion 即关闭文件
+        FileChannel channel = FileChannel.open(resource.path);
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            StringBuilder part = new StringBuilder();
+            if (i > 0) {
+                part.append(HttpConstant.CRLF);
+            }
+            part.append("--").append(boundary).append(HttpConstant.CRLF);
+            if (resource.mimeType != null) {
+                part.append(HttpConstant.CONTENT_TYPE).append(": ").append(resource.mimeType).append(HttpConstant.CRLF);
+            }
+            part.append(HttpConstant.CONTENT_RANGE).append(": ").append(contentRange(range, resource.length))
+                    .append(HttpConstant.CRLF).append(HttpConstant.CRLF);
+            response.addFileRegion(new FileRegion(ascii(part.toString()), channel, range.first, range.length()));
+        }
+        String end = HttpConstant.CRLF + "--" + boundary + "--" + HttpConstant.CRLF;
+        response.addFileRegion(new FileRegion(ascii(end), null, 0, 0));
+    }
+
+    private static String contentRange(ByteRange range, long length) {
+        return "bytes " + range.first + "-" + range.last + "/" + length;
+    }
+
+    private static ByteBuffer ascii(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 获得请求的资源名：去掉开头的 / 和查询字符串
+     */
+    private static String resourceName(HttpRequest request) {
+        String uri = request.getRequestURI();
+        int idx = uri.indexOf('?');
+        return uri.substring(1, idx == -1 ? uri.length() : idx);
+    }
+
+    public StaticResourceCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,82 @@
+package org.webserver.template;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 将占位符的值做 HTML 转义（& < > " '），同时编码为 UTF-8 字节写入输出流，不产生中间的 String 和 byte[]。
+ * 编码时使用每个线程一个的缓冲区，满了就写入输出流；不成对的代理字符输出 ?，与 String#getBytes 一致
+ */
+final class HtmlEscaper {
+    private static final int BUFFER_SIZE = 1024;
+    /** 一个字符编码后的最大长度：&quot; */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private static final byte[] AMP = "&amp;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LT = "&lt;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GT = "&gt;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] QUOT = "&quot;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] APOS = "&#39;".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<byte[]> buffer = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private HtmlEscaper() {
+    }
+
+    static void write(CharSequence value, OutputStream out) throws IOException {
+        byte[] buf = buffer.get();
+        int n = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (n > BUFFER_SIZE - MAX_CHAR_BYTES) {
+                out.write(buf, 0, n);
+                n = 0;
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '&':
+                        n = put(buf, n, AMP);
+                        break;
+                    case '<':
+                        n = put(buf, n, LT);
+                        break;
+                    case '>':
+                        n = put(buf, n, GT);
+                        break;
+                    case '"':
+                        n = put(buf, n, QUOT);
+                        break;
+                    case '\'':
+                        n = put(buf, n, APOS);
+                        break;
+                    default:
+                        buf[n++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                buf[n++] = (byte) (0xc0 | c >> 6);
+                buf[n++] = (byte) (0x80 | c & 0x3f);
+            } else if (!Character.isSurrogate(c)) {
+                buf[n++] = (byte) (0xe0 | c >> 12);
+                buf[n++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buf[n++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[n++] = (byte) (0xf0 | codePoint >> 18);
+                buf[n++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buf[n++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buf[n++] = (byte) (0x80 | codePoint & 0x3f);
+            } else {
+                buf[n++] = '?';
+            }
+        }
+        if (n > 0) {
+            out.write(buf, 0, n);
+        }
+    }
+
+    private static int put(byte[] buf, int n, byte[] entity) {
+        System.arraycopy(entity, 0, buf, n, entity.length);
+        return n + entity.length;
+    }
+}
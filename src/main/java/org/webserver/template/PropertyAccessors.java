@@ -0,0 +1,43 @@
+package org.webserver.template;
+
+import org.webserver.util.StringUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模板中属性的 getter，按（类，属性名）缓存为类型是 (Object)Object 的 MethodHandle，每个类的缓存保存在 ClassValue 中
+ */
+final class PropertyAccessors {
+    private static final ClassValue<Map<String, MethodHandle>> GETTERS = new ClassValue<>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private PropertyAccessors() {
+    }
+
+    /**
+     * 属性 property 的 getter，如 name 为 getName()
+     * @return 没有 public 的 getter 时返回 null
+     */
+    static MethodHandle getter(Class<?> type, String property) {
+        Map<String, MethodHandle> getters = GETTERS.get(type);
+        MethodHandle getter = getters.get(property);
+        if (getter == null) {
+            try {
+                getter = MethodHandles.publicLookup().unreflect(type.getMethod(StringUtil.getterName(property)))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (ReflectiveOperationException | RuntimeException e) { // 没有该方法，或为静态方法
+                return null;
+            }
+            getters.put(property, getter);
+        }
+        return getter;
+    }
+}
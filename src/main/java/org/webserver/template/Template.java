@@ -0,0 +1,192 @@
+package org.webserver.template;
+
+import org.webserver.constant.TemplateConstant;
+import org.webserver.exception.TemplateParseException;
+import org.webserver.http.request.HttpRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编译后的模板：不可变的指令列表，字面量预先编码为 UTF-8 字节，占位符 ${scope.key.a.b} 编译为表达式节点，
+ * 等价于 scope.getAttribute("key").getA().getB()，值经 HTML 转义后输出，为 null 时输出空字符串。
+ *
+ * 属性的 getter 通过 PropertyAccessors 按（类，属性名）缓存，每个属性节点还记住上一次的类型和 getter，
+ * 类型不变时不再查找
+ */
+final class Template {
+    private static final String OPEN = "${";
+    private static final char CLOSE = '}';
+
+    private final Node[] nodes;
+
+    private Template(Node[] nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * 编译模板，占位符在第一个 } 处结束，没有结束的 ${ 作为普通文本
+     * @param name 模板名，用于错误信息
+     * @throws TemplateParseException 占位符格式错误，如没有作用域 ${user}、属性名为空 ${request.user.}
+     */
+    static Template compile(String name, String source) throws TemplateParseException {
+        List<Node> nodes = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf(OPEN, pos);
+            int close = open == -1 ? -1 : source.indexOf(CLOSE, open + OPEN.length());
+            if (close == -1) {
+                addLiteral(nodes, source.substring(pos));
+                break;
+            }
+            addLiteral(nodes, source.substring(pos, open));
+            nodes.add(new Expression(name, source.substring(open + OPEN.length(), close)));
+            pos = close + 1;
+        }
+        return new Template(nodes.toArray(new Node[0]));
+    }
+
+    private static void addLiteral(List<Node> nodes, String text) {
+        if (!text.isEmpty()) {
+            nodes.add(new Literal(text.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * 渲染模板，以 UTF-8 编码写入 out：字面量直接写入预先编码的字节，值转义时直接编码为字节
+     * @throws TemplateParseException 取属性值失败，如中间的值为 null、没有对应的 getter
+     */
+    void render(HttpRequest request, OutputStream out) throws IOException, TemplateParseException {
+        for (Node node : nodes) {
+            node.render(request, out);
+        }
+    }
+
+    private interface Node {
+        void render(HttpRequest request, OutputStream out) throws IOException, TemplateParseException;
+    }
+
+    private static final class Literal implements Node {
+        private final byte[] bytes;
+
+        Literal(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void render(HttpRequest request, OutputStream out) throws IOException {
+            out.write(bytes);
+        }
+    }
+
+    private enum Scope {
+        REQUEST, SESSION, UNKNOWN
+    }
+
+    /**
+     * 占位符：作用域、属性名（getAttribute 的参数）和之后的级联属性
+     */
+    private static final class Expression implements Node {
+        private final Scope scope;
+        private final String key;
+        private final Property[] properties;
+
+        Expression(String template, String holder) throws TemplateParseException {
+            String location = "模板 " + template + " 中的 ${" + holder + "}";
+            String[] keys = holder.split("\\.", -1);
+            if (keys.length < 2) { // 无效
+                throw new TemplateParseException(location + "：缺少作用域（request 或 session）");
+            }
+            for (String key : keys) {
+                if (key.isEmpty()) {
+                    throw new TemplateParseException(location + "：属性名为空");
+                }
+            }
+            if (keys[0].equals(TemplateConstant.SCOPE_REQUEST)) {
+                scope = Scope.REQUEST;
+            } else if (keys[0].equals(TemplateConstant.SCOPE_SESSION)) {
+                scope = Scope.SESSION;
+            } else {
+                scope = Scope.UNKNOWN;
+            }
+            key = keys[1];
+            properties = new Property[keys.length - 2];
+            for (int i = 0; i < properties.length; i++) {
+                properties[i] = new Property(keys[i + 2], location);
+            }
+        }
+
+        Object value(HttpRequest request) throws TemplateParseException {
+            Object value = null;
+            if (scope == Scope.REQUEST) {
+                value = request.getAttribute(key);
+            } else if (scope == Scope.SESSION) {
+                value = request.getSession().getAttribute(key);
+            }
+            for (Property property : properties) {
+                value = property.get(value);
+            }
+            return value;
+        }
+
+        @Override
+        public void render(HttpRequest request, OutputStream out) throws IOException, TemplateParseException {
+            Object value = value(request);
+            if (value != null) {
+                HtmlEscaper.write(value instanceof CharSequence ? (CharSequence) value : value.toString(), out);
+            }
+        }
+    }
+
+    /**
+     * 级联属性，记住上一次的类型和 getter
+     */
+    private static final class Property {
+        private final String name;
+        /** 用于错误信息 */
+        private final String location;
+        private volatile Accessor cached;
+
+        Property(String name, String location) {
+            this.name = name;
+            this.location = location;
+        }
+
+        Object get(Object target) throws TemplateParseException {
+            if (target == null) {
+                throw new TemplateParseException(location + "：取属性 " + name + " 时值为 null");
+            }
+            Class<?> type = target.getClass();
+            Accessor accessor = cached;
+            if (accessor == null || accessor.type != type) {
+                MethodHandle getter = PropertyAccessors.getter(type, name);
+                if (getter == null) {
+                    throw new TemplateParseException(location + "：" + type.getName() + " 没有属性 " + name + " 的 getter");
+                }
+                accessor = new Accessor(type, getter);
+                cached = accessor;
+            }
+            try {
+                return (Object) accessor.getter.invokeExact(target);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new TemplateParseException(location + "：取属性 " + name + " 失败：" + e);
+            }
+        }
+    }
+
+    private static final class Accessor {
+        final Class<?> type;
+        final MethodHandle getter;
+
+        Accessor(Class<?> type, MethodHandle getter) {
+            this.type = type;
+            this.getter = getter;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.webserver.template;
+
+import org.webserver.exception.TemplateParseException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的模板的缓存，按文件路径保存；每次取得时检查文件的修改时间和大小，变化后重新编译
+ */
+final class TemplateCache {
+    private final ConcurrentHashMap<Path, Entry> templates = new ConcurrentHashMap<>();
+
+    /**
+     * @throws IOException 模板文件不存在或读取失败
+     */
+    Template get(Path path) throws IOException, TemplateParseException {
+        // 先读取属性再读取内容：读取期间文件被修改时，记录的是旧的修改时间，下次会再编译一次
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Entry entry = templates.get(path);
+        if (entry == null || !entry.matches(attributes)) {
+            entry = new Entry(Template.compile(path.getFileName().toString(), Files.readString(path)),
+                    attributes.lastModifiedTime(), attributes.size());
+            templates.put(path, entry);
+        }
+        return entry.template;
+    }
+
+    int size() {
+        return templates.size();
+    }
+
+    private static final class Entry {
+        final Template template;
+        final FileTime lastModified;
+        final long size;
+
+        Entry(Template template, FileTime lastModified, long size) {
+            this.template = template;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return attributes.size() == size && attributes.lastModifiedTime().equals(lastModified);
+        }
+    }
+}
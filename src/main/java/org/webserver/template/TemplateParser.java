@@ -1,115 +1,39 @@
 package org.webserver.template;
 
-import org.webserver.constant.TemplateConstant;
 import org.webserver.exception.TemplateParseException;
 import org.webserver.http.request.HttpRequest;
 import org.webserver.http.response.HttpResponse;
-import org.webserver.util.StringUtil;
+import org.webserver.util.IOUtil;
 
-import javax.swing.plaf.synth.SynthOptionPaneUI;
 import java.io.IOException;
-import java.io.Writer;
-import java.lang.reflect.Method;
-import java.nio.channels.FileChannel;
-import java.nio.file.Files;
-import java.nio.file.OpenOption;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+/**
+ * 渲染 webapp 目录下的模板，模板编译后缓存，文件修改后重新编译（见 Template、TemplateCache）
+ */
 public class TemplateParser {
     public static final Logger logger = Logger.getLogger(TemplateParser.class.getPackageName());
 
-    public static final String WEBAPP_ROOT_PATH =
-            TemplateParser.class.getResource("/")
-                    .toString().substring(6) + "webapp/"; //substring(6)去掉开头的file:/
+    public static final String WEBAPP_ROOT_PATH = IOUtil.classpathDirectory("/") + "webapp/";
+
+    private static final TemplateCache cache = new TemplateCache();
 
     /**
-     * Pattern 类是线程安全的不可变类。
-     *
-     * Pattern: ${xxx.yyy...}
-     * 等价于：xxx.getYyy()...
+     * 渲染模板，以 UTF-8 编码直接写入响应体的缓冲区；页面超过响应缓冲区大小时边渲染边分块发送
+     * @param path 相对 webapp 目录的模板路径
+     * @throws TemplateParseException 模板中的占位符格式错误，或取属性值失败
+     * @throws IOException 写入响应失败（响应体分块发送时客户端断开）
      */
-    private static final Pattern holderPattern = Pattern.compile("\\$\\{(.*)}");
-
-
-    public static void parse(HttpRequest request, HttpResponse response, String path) throws TemplateParseException {
-        StringBuilder sb = new StringBuilder();
-        String content;
+    public static void parse(HttpRequest request, HttpResponse response, String path) throws TemplateParseException, IOException {
+        Template template;
         try {
-            content = Files.readString(Path.of(WEBAPP_ROOT_PATH + path));
+            template = cache.get(Path.of(WEBAPP_ROOT_PATH + path));
         } catch (IOException e) {
             e.printStackTrace();
             logger.warning("读取模板失败：" + e.getMessage());
             return;
         }
-
-        parseHolder(request, content, sb);
-
-        try {
-            Writer writer = response.getWriter();
-            if (sb.length() != 0) {
-                writer.write(sb.toString());
-            } else {
-                writer.write(content);
-            }
-            writer.close();
-        } catch (IOException ignore) {}
-    }
-
-    private static void parseHolder(HttpRequest request, String content, StringBuilder sb) throws TemplateParseException {
-        Matcher matcher = holderPattern.matcher(content);
-        while (matcher.find()) {
-            String holder = matcher.group(1);
-            int firstDotPos = holder.indexOf('.');
-            if (firstDotPos == -1) { // 无效
-                throw new TemplateParseException();
-            }
-            String scope = holder.substring(0, firstDotPos); // 作用域：request or session
-            String[] keys = holder.substring(firstDotPos + 1).split("\\.");
-            Object value = null;
-            if (scope.equals(TemplateConstant.SCOPE_REQUEST)) {
-                value = request.getAttribute(keys[0]);
-            } else if(scope.equals(TemplateConstant.SCOPE_SESSION)) {
-                value = request.getSession().getAttribute(keys[0]);
-            }
-            value = parseHolderHelper(value, keys, 1);
-            // 替换
-            if (value == null) {
-                matcher.appendReplacement(sb, "");
-            } else {
-                matcher.appendReplacement(sb, value.toString());
-            }
-        }
-        matcher.appendTail(sb); // 补上剩余内容
-    }
-
-    /**
-     * 递归处理剩下级联内容
-     */
-    private static Object parseHolderHelper(Object value, String[] keys, int index) throws TemplateParseException {
-        if (index == keys.length) { // 到头了
-            return value;
-        }
-        Object ret;
-        try {
-            Method getter = value.getClass().getMethod(StringUtil.getterName(keys[index]));
-            ret = getter.invoke(value);
-        } catch (Exception e) {
-            throw new TemplateParseException();
-        }
-        return parseHolderHelper(ret, keys, index + 1);
-    }
-
-    public static void main(String[] args) throws TemplateParseException, IOException {
-        HttpRequest request = new HttpRequest();
-        HttpResponse response = new HttpResponse();
-
-        request.setAttribute("key", "^_^");
-        String content = "this is the value: ${request.key.class}";
-        StringBuilder sb = new StringBuilder();
-        parse(request, response, "test.html");
+        template.render(request, response.getOutputStream());
     }
 }
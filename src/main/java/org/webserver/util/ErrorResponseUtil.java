@@ -20,9 +20,15 @@ public class ErrorResponseUtil {
             case SC_404:
                 msg = "<h3 style='color:red;'>404资源不存在 " + msg + "</h3>";
                 break;
+            case SC_416:
+                msg = "<h3 style='color:red;'>416请求的范围无效 " + msg + "</h3>";
+                break;
             case SC_500:
                 msg = "<h3 style='color:red;'>500服务器内部错误 " + msg + "</h3>";
                 break;
+            case SC_503:
+                msg = "<h3 style='color:red;'>503服务暂不可用 " + msg + "</h3>";
+                break;
         }
         try {
             response.getWriter().write(msg);
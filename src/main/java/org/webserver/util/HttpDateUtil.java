@@ -0,0 +1,36 @@
+package org.webserver.util;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * HTTP 日期（RFC 7231 IMF-fixdate），如 Sun, 06 Nov 1994 08:49:37 GMT
+ */
+public class HttpDateUtil {
+    /** 日期固定为两位，DateTimeFormatter.RFC_1123_DATE_TIME 的日期可能只有一位 */
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    /**
+     * 格式化为 HTTP 日期，精确到秒
+     */
+    public static String format(long epochMillis) {
+        return FORMATTER.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * 解析 HTTP 日期
+     * @return 毫秒时间戳，格式错误时返回 -1
+     */
+    public static long parse(String date) {
+        try {
+            return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package org.webserver.util;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Iterator;
@@ -19,6 +23,23 @@ public class IOUtil {
         }
     }
 
+    /**
+     * 类路径下目录的本地文件系统路径，以路径分隔符结尾
+     * @param name 以 / 开头的资源名，如 /webapp/
+     */
+    public static String classpathDirectory(String name) {
+        URL url = IOUtil.class.getResource(name);
+        if (url == null) {
+            throw new UncheckedIOException(new IOException("类路径下不存在：" + name));
+        }
+        try {
+            String path = Path.of(url.toURI()).toString();
+            return path.endsWith(File.separator) ? path : path + File.separator;
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
     public static void main(String[] args) throws IOException {
         traverseDirectory(Path.of("E:\\Programming\\Study\\out\\production"), System.out::println);
     }
@@ -98,6 +98,39 @@ public class ReflectUtil {
         }
     }
 
+    /**
+     * 转换为指定类型的函数，与 cast 相同，类型处理器预先查找
+     */
+    public static Function<String, Object> converter(Class<?> type) {
+        Function<String, Object> handler = typeHandler.get(type);
+        return val -> {
+            try {
+                return handler.apply(val);
+            } catch (RuntimeException e) { // 解析出错的话
+                return defaultValue(type);
+            }
+        };
+    }
+
+    /** 数值类型的空默认值为对应包装类型的 0（处理方法通过 LambdaMetafactory 调用时不做拓宽转换） */
+    private static final Map<Class<?>, Object> zeroValues = new HashMap<>();
+    static {
+        zeroValues.put(int.class, 0);
+        zeroValues.put(Integer.class, 0);
+        zeroValues.put(long.class, 0L);
+        zeroValues.put(Long.class, 0L);
+        zeroValues.put(double.class, 0D);
+        zeroValues.put(Double.class, 0D);
+        zeroValues.put(float.class, 0F);
+        zeroValues.put(Float.class, 0F);
+        zeroValues.put(byte.class, (byte) 0);
+        zeroValues.put(Byte.class, (byte) 0);
+        zeroValues.put(short.class, (short) 0);
+        zeroValues.put(Short.class, (short) 0);
+        zeroValues.put(char.class, (char) 0);
+        zeroValues.put(Character.class, (char) 0);
+    }
+
     /**
      * 空默认值
      */
@@ -109,7 +142,7 @@ public class ReflectUtil {
         else if(typeEquals(Date.class, type))
             return new Date();
         else
-            return 0;
+            return zeroValues.getOrDefault(type, 0);
     }
 
     public static void main(String[] args) {
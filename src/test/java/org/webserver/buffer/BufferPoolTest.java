@@ -0,0 +1,101 @@
+package org.webserver.buffer;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class BufferPoolTest {
+
+    @Test
+    public void reuseReleasedBuffer() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer buffer = pool.acquire(1000);
+        Assert.assertTrue(buffer.isDirect());
+        Assert.assertEquals(1024, buffer.capacity());
+        Assert.assertEquals(1, pool.getMissCount());
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquire(600);
+        Assert.assertSame(buffer, reused);
+        Assert.assertEquals(0, reused.position());
+        Assert.assertEquals(1, pool.getHitCount());
+    }
+
+    @Test
+    public void virtualThreadsUseSharedCache() throws Exception {
+        Method ofVirtual;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) { // JDK 21 以下
+            Assume.assumeNoException(e);
+            return;
+        }
+        BufferPool pool = new BufferPool();
+        ByteBuffer[] released = new ByteBuffer[1];
+        boolean[] virtual = new boolean[1];
+        Runnable task = () -> {
+            virtual[0] = BufferPool.isVirtualThread();
+            released[0] = pool.acquire(1000);
+            pool.release(released[0]);
+        };
+        // 以 JDK 11 为编译目标，通过反射调用 Thread.ofVirtual().start(task)
+        Object builder = ofVirtual.invoke(null);
+        Thread thread = (Thread) Class.forName("java.lang.Thread$Builder").getMethod("start", Runnable.class)
+                .invoke(builder, task);
+        thread.join();
+        Assert.assertTrue(virtual[0]);
+        // 虚拟线程归还的缓冲区在全局共享池中，其他线程可以借到
+        Assert.assertEquals(1, pool.getSharedCacheCount());
+        Assert.assertSame(released[0], pool.acquire(1000));
+    }
+
+    @Test
+    public void notPoolOversizedBuffer() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer buffer = pool.acquire(BufferPool.MAX_CAPACITY + 1);
+        pool.release(buffer);
+        Assert.assertNotSame(buffer, pool.acquire(BufferPool.MAX_CAPACITY + 1));
+        Assert.assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void adaptReadBufferSize() {
+        AdaptiveBufferSizer sizer = new AdaptiveBufferSizer();
+        int initial = sizer.nextSize();
+        sizer.record(initial);
+        Assert.assertEquals(initial * 4, sizer.nextSize());
+        // 连续两次读取的数据量都很少才缩小
+        sizer.record(10);
+        Assert.assertEquals(initial * 4, sizer.nextSize());
+        sizer.record(10);
+        Assert.assertEquals(initial * 2, sizer.nextSize());
+    }
+
+    @Test
+    public void writeAcrossBuffers() {
+        BufferPool pool = new BufferPool();
+        BufferOutputStream out = new BufferOutputStream(pool);
+        byte[] data = new byte[BufferPool.MIN_CAPACITY * 5 + 7];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        out.write(data, 0, data.length);
+        Assert.assertEquals(data.length, out.size());
+
+        ByteBuffer result = ByteBuffer.allocate(data.length);
+        for (ByteBuffer buffer : out.toBuffers()) {
+            result.put(buffer);
+        }
+        Assert.assertArrayEquals(data, result.array());
+
+        out.release();
+        Assert.assertEquals(0, out.size());
+        out.write("ok".getBytes(StandardCharsets.US_ASCII), 0, 2);
+        Assert.assertTrue(pool.getHitCount() > 0);
+    }
+}
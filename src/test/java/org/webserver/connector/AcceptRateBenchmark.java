@@ -0,0 +1,87 @@
+package org.webserver.connector;
+
+import org.webserver.constant.ServerConfig;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 短连接的接收速率：每个客户端连接只发送一个请求（Connection: close），模拟健康检查和短连接客户端。
+ *
+ * 依次比较：单个 Acceptor 线程；多个 Acceptor 线程（SO_REUSEPORT，每个线程一个 ServerSocketChannel）；
+ * 由轮询线程通过 OP_ACCEPT 接收连接。
+ *
+ * 运行：mvn test-compile 后以 target/test-classes 和 target/classes 为类路径运行 main 方法，
+ *      可选参数 [-Dbench.clients=16 -Dbench.connections=1000 -Dbench.acceptors=4]
+ */
+public class AcceptRateBenchmark {
+    private static final byte[] REQUEST =
+            "GET /bench.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.getInteger("bench.port", 18090);
+        int clients = Integer.getInteger("bench.clients", 16);
+        int connections = Integer.getInteger("bench.connections", 1000);
+        int acceptors = Integer.getInteger("bench.acceptors", 4);
+        BenchmarkSupport.initConfig(port);
+
+        run("单个 Acceptor", port, clients, connections, "1", "false");
+        run(acceptors + " 个 Acceptor", port + 1, clients, connections, String.valueOf(acceptors), "false");
+        run("轮询线程接收连接", port + 2, clients, connections, "1", "true");
+    }
+
+    private static void run(String name, int port, int clients, int connections,
+                            String acceptorThreadCount, String acceptOnPoller) throws InterruptedException {
+        System.setProperty(ServerConfig.ACCEPTOR_THREAD_COUNT, acceptorThreadCount);
+        System.setProperty(ServerConfig.ACCEPT_ON_POLLER, acceptOnPoller);
+        Server server = new Server();
+        server.start(port);
+
+        runClients(port, clients, connections / 10); // 预热
+        long start = System.nanoTime();
+        long total = runClients(port, clients, connections);
+        long elapsed = System.nanoTime() - start;
+
+        StringBuilder distribution = new StringBuilder();
+        for (Poller poller : server.getPollers()) {
+            distribution.append(poller.getPollerName()).append('=').append(poller.getConnectionCount()).append(' ');
+        }
+        System.out.printf("%s：连接数 %d，%.0f 连接/s，各轮询线程的连接数 %s%n",
+                name, total, total * 1e9 / elapsed, distribution);
+        server.close();
+    }
+
+    /**
+     * 每个客户端线程依次建立 connections 个连接，每个连接发送一个请求后关闭
+     * @return 完成的连接数
+     */
+    private static long runClients(int port, int clients, int connections) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < connections; j++) {
+                    try (Socket socket = new Socket("localhost", port)) {
+                        socket.getOutputStream().write(REQUEST);
+                        BenchmarkSupport.readResponse(new BufferedInputStream(socket.getInputStream()));
+                        completed.increment();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        return;
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return completed.sum();
+    }
+}
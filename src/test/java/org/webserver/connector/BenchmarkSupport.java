@@ -0,0 +1,65 @@
+package org.webserver.connector;
+
+import org.webserver.constant.ServerConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 基准测试的公共方法：服务器配置、读取响应
+ */
+class BenchmarkSupport {
+
+    /**
+     * 设置启动服务器所需的配置（已通过 -D 指定的不覆盖），关闭 INFO 日志
+     */
+    static void initConfig(int port) {
+        setDefault(ServerConfig.PORT, String.valueOf(port));
+        setDefault(ServerConfig.CONNECTION_EXPIRY_TIME, "30000");
+        setDefault(ServerConfig.KEEP_ALIVE_MAX_REQUESTS, "0");
+        setDefault(ServerConfig.SESSION_EXPIRY_TIME, "30000");
+        setDefault(ServerConfig.SESSION_CLEANING_CYCLE, "30000");
+        setDefault(ServerConfig.POLLER_THREAD_COUNT, "2");
+        setDefault(ServerConfig.REQUEST_PROCESSOR_THREAD_COUNT, "4");
+        Logger.getLogger("").setLevel(Level.WARNING);
+    }
+
+    static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * 读取一个以 Content-Length 标明长度的响应
+     */
+    static void readResponse(InputStream in) throws IOException {
+        StringBuilder header = new StringBuilder();
+        int contentLength = 0;
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("连接已关闭");
+            }
+            if (b != '\n') {
+                if (b != '\r') {
+                    header.append((char) b);
+                }
+                continue;
+            }
+            if (header.length() == 0) {
+                break;
+            }
+            String line = header.toString();
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+            header.setLength(0);
+        }
+        if (in.readNBytes(contentLength).length != contentLength) {
+            throw new IOException("响应体不完整");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.webserver.connector;
+
+import org.webserver.constant.ServerConfig;
+import org.webserver.container.annotation.Controller;
+import org.webserver.container.annotation.RequestMapping;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 阻塞的控制器方法（如访问数据库）在固定大小的线程池和虚拟线程下的对比：
+ * 大量并发的慢请求同时到达，统计全部完成的时间。
+ *
+ * 虚拟线程需要 JDK 21 及以上，低版本 JDK 上第二组结果仍是固定大小的线程池。
+ *
+ * 运行：mvn test-compile 后以 target/test-classes 和 target/classes 为类路径运行 main 方法，
+ *      可选参数 [-Dbench.concurrency=400 -Dbench.sleep=100]
+ */
+@Controller
+public class BlockingHandlerBenchmark {
+    private static final long SLEEP_MILLIS = Long.getLong("bench.sleep", 100);
+    private static final byte[] REQUEST =
+            "GET /blocking HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 模拟阻塞的控制器方法
+     */
+    @RequestMapping("/blocking")
+    public void blocking() throws InterruptedException {
+        Thread.sleep(SLEEP_MILLIS);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.getInteger("bench.port", 18100);
+        int concurrency = Integer.getInteger("bench.concurrency", 400);
+        BenchmarkSupport.initConfig(port);
+
+        run("固定大小的线程池（" + System.getProperty(ServerConfig.REQUEST_PROCESSOR_THREAD_COUNT) + "）",
+                port, concurrency, "false");
+        run("虚拟线程", port + 1, concurrency, "true");
+    }
+
+    private static void run(String name, int port, int concurrency, String virtualThreads) throws InterruptedException {
+        System.setProperty(ServerConfig.REQUEST_PROCESSOR_VIRTUAL_THREADS, virtualThreads);
+        Server server = new Server();
+        server.start(port);
+
+        LongAdder completed = new LongAdder();
+        CountDownLatch ready = new CountDownLatch(concurrency);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Thread thread = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", port)) {
+                    ready.countDown();
+                    go.await();
+                    socket.getOutputStream().write(REQUEST);
+                    BenchmarkSupport.readResponse(new BufferedInputStream(socket.getInputStream()));
+                    completed.increment();
+                } catch (IOException | InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s：%d 个并发请求（每个阻塞 %d ms），完成 %d 个，耗时 %d ms%n",
+                name, concurrency, SLEEP_MILLIS, completed.sum(), elapsed / 1_000_000);
+        server.close();
+    }
+}
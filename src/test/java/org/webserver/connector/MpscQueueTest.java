@@ -0,0 +1,65 @@
+package org.webserver.connector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MpscQueueTest {
+
+    @Test
+    public void fifo() {
+        MpscQueue<String> queue = new MpscQueue<>();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+        queue.offer("a");
+        queue.offer("b");
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals("a", queue.poll());
+        queue.offer("c");
+        Assert.assertEquals("b", queue.poll());
+        Assert.assertEquals("c", queue.poll());
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals(3, queue.getOfferCount());
+    }
+
+    @Test
+    public void multipleProducers() throws InterruptedException {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        int producers = 4;
+        int perProducer = 100000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.offer(base + i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        // 每个生产者的元素按入队顺序出队，且不丢失
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        int received = 0;
+        while (received < producers * perProducer) {
+            Integer value = queue.poll();
+            if (value == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = value / perProducer;
+            Assert.assertTrue(value % perProducer > last[producer]);
+            last[producer] = value % perProducer;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(queue.isEmpty());
+    }
+}
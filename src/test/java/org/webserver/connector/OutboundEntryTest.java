@@ -0,0 +1,124 @@
+package org.webserver.connector;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webserver.http.request.HttpRequest;
+import org.webserver.http.request.HttpRequestParser;
+import org.webserver.http.response.FileRegion;
+import org.webserver.http.response.HttpResponse;
+import org.webserver.resource.StaticResourceHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class OutboundEntryTest {
+
+    /**
+     * 写到非阻塞的管道中，直到写完，返回收到的数据
+     */
+    private static byte[] writeAll(OutboundEntry entry) throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.sink().configureBlocking(false);
+        pipe.source().configureBlocking(false);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        ByteBuffer readBuffer = ByteBuffer.allocate(8192);
+        while (!entry.isDone()) {
+            entry.writeTo(pipe.sink());
+            int n;
+            while ((n = pipe.source().read(readBuffer.clear())) > 0) {
+                received.write(readBuffer.array(), 0, n);
+            }
+        }
+        return received.toByteArray();
+    }
+
+    @Test
+    public void emptyLastBufferDoesNotEndEntry() throws IOException {
+        byte[] header = "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        OutboundEntry entry = new OutboundEntry(
+                new ByteBuffer[]{ByteBuffer.wrap(header), ByteBuffer.allocateDirect(0)}, () -> {
+        });
+        Assert.assertFalse(entry.isDone());
+        Assert.assertEquals(header.length, entry.remaining());
+        Assert.assertArrayEquals(header, writeAll(entry));
+        Assert.assertEquals(0, entry.remaining());
+    }
+
+    @Test
+    public void serveEmptyStaticFile() throws Exception {
+        Path root = Files.createTempDirectory("webapp");
+        Path file = Files.createFile(root.resolve("empty.txt"));
+        try {
+            HttpRequest request = new HttpRequestParser().parse(ByteBuffer.wrap(
+                    "GET /empty.txt HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII)));
+            StaticResourceHandler handler = new StaticResourceHandler(root);
+            // 第一次从文件读取，第二次命中缓存
+            for (int i = 0; i < 2; i++) {
+                HttpResponse response = handler.handle(request);
+                OutboundEntry entry = OutboundEntry.of(response);
+                String sent = new String(writeAll(entry), StandardCharsets.US_ASCII);
+                entry.release();
+                Assert.assertTrue(sent, sent.startsWith("HTTP/1.1 200"));
+                Assert.assertTrue(sent, sent.contains("Content-Length: 0\r\n"));
+                Assert.assertTrue(sent, sent.endsWith("\r\n\r\n"));
+            }
+        } finally {
+            Files.delete(file);
+            Files.delete(root);
+        }
+    }
+
+    @Test
+    public void resumeFileRegionAfterPartialWrites() throws IOException {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        Path file = Files.createTempFile("outbound", ".bin");
+        Files.write(file, content);
+        try {
+            FileChannel channel = FileChannel.open(file);
+            byte[] header = "HEADER\r\n".getBytes(StandardCharsets.US_ASCII);
+            ByteBuffer prefix = ByteBuffer.wrap("--part\r\n".getBytes(StandardCharsets.US_ASCII));
+            boolean[] released = new boolean[1];
+            OutboundEntry entry = new OutboundEntry(new ByteBuffer[]{ByteBuffer.wrap(header)},
+                    List.of(new FileRegion(channel, 0, 100), new FileRegion(prefix, channel, 100, content.length - 100)),
+                    () -> released[0] = true);
+
+            // 非阻塞的管道，缓冲区很小，每次只能写入一部分
+            Pipe pipe = Pipe.open();
+            pipe.sink().configureBlocking(false);
+            pipe.source().configureBlocking(false);
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            ByteBuffer readBuffer = ByteBuffer.allocate(8192);
+            int rounds = 0;
+            while (!entry.isDone()) {
+                entry.writeTo(pipe.sink());
+                int n;
+                while ((n = pipe.source().read(readBuffer.clear())) > 0) {
+                    received.write(readBuffer.array(), 0, n);
+                }
+                rounds++;
+            }
+            entry.release();
+            Assert.assertTrue(rounds > 1);
+            Assert.assertTrue(released[0]);
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            expected.write(header);
+            expected.write(content, 0, 100);
+            expected.write("--part\r\n".getBytes(StandardCharsets.US_ASCII));
+            expected.write(content, 100, content.length - 100);
+            Assert.assertArrayEquals(expected.toByteArray(), received.toByteArray());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
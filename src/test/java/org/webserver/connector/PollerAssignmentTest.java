@@ -0,0 +1,71 @@
+package org.webserver.connector;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.webserver.constant.ServerConfig;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PollerAssignmentTest {
+    private final List<Poller> pollers = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        System.setProperty(ServerConfig.CONNECTION_EXPIRY_TIME, "30000");
+        for (int i = 0; i < 3; i++) {
+            pollers.add(new Poller("Poller-" + i, null));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Poller poller : pollers) {
+            poller.close();
+        }
+    }
+
+    private void addClients(Poller poller, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            SocketChannel channel = SocketChannel.open();
+            poller.getClients().put(channel, new SocketWrapper(channel, poller));
+        }
+    }
+
+    @Test
+    public void roundRobin() {
+        PollerAssignment assignment = PollerAssignment.of(PollerAssignment.ROUND_ROBIN);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertSame(pollers.get(i % 3), assignment.select(pollers));
+        }
+    }
+
+    @Test
+    public void leastConnections() throws IOException {
+        PollerAssignment assignment = PollerAssignment.of(PollerAssignment.LEAST_CONNECTIONS);
+        addClients(pollers.get(0), 2);
+        addClients(pollers.get(2), 1);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertSame(pollers.get(1), assignment.select(pollers));
+        }
+        addClients(pollers.get(1), 3);
+        Assert.assertSame(pollers.get(2), assignment.select(pollers));
+    }
+
+    @Test
+    public void leastBusyPrefersFewerConnectionsWhenIdle() throws IOException {
+        PollerAssignment assignment = PollerAssignment.of(PollerAssignment.LEAST_BUSY);
+        addClients(pollers.get(0), 1);
+        addClients(pollers.get(1), 1);
+        Assert.assertSame(pollers.get(2), assignment.select(pollers));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownStrategy() {
+        PollerAssignment.of("random");
+    }
+}
@@ -0,0 +1,109 @@
+package org.webserver.connector;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 持久连接上每个请求引起的 selector 操作次数（注册、修改监听事件、唤醒），以及事件队列的合并情况。
+ *
+ * 每个请求处理完后取消 SelectionKey 再重新注册时，每个请求都需要一次注册、一次唤醒，
+ * 复用 SelectionKey 后每个连接只注册一次，唤醒在并发请求之间合并。
+ *
+ * 运行：mvn test-compile 后以 target/test-classes 和 target/classes 为类路径运行 main 方法，
+ *      可选参数 [-Dbench.connections=16 -Dbench.requests=2000]
+ */
+public class SelectorChurnBenchmark {
+    private static final byte[] REQUEST =
+            "GET /bench.txt HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.getInteger("bench.port", 18080);
+        int connections = Integer.getInteger("bench.connections", 16);
+        int requests = Integer.getInteger("bench.requests", 2000);
+
+        BenchmarkSupport.initConfig(port);
+
+        Server server = new Server();
+        server.start(port);
+
+        // 预热
+        runClients(port, connections, requests / 10);
+        long registrations = sum(server, Poller::getKeyRegistrationCount);
+        long updates = sum(server, Poller::getInterestOpsUpdateCount);
+        long wakeups = sum(server, Poller::getWakeupCount);
+        long events = sum(server, Poller::getEventCount);
+
+        long start = System.nanoTime();
+        long total = runClients(port, connections, requests);
+        long elapsed = System.nanoTime() - start;
+
+        registrations = sum(server, Poller::getKeyRegistrationCount) - registrations;
+        updates = sum(server, Poller::getInterestOpsUpdateCount) - updates;
+        wakeups = sum(server, Poller::getWakeupCount) - wakeups;
+        events = sum(server, Poller::getEventCount) - events;
+        System.out.printf("连接数 %d，请求数 %d，吞吐量 %.0f req/s%n",
+                connections, total, total * 1e9 / elapsed);
+        System.out.printf("每个请求：注册 %.4f 次，修改监听事件 %.4f 次，唤醒 %.4f 次%n",
+                (double) registrations / total, (double) updates / total, (double) wakeups / total);
+        System.out.printf("事件 %d 个，平均每次唤醒处理 %.2f 个事件，一次最多处理 %d 个事件%n",
+                events, (double) events / Math.max(1, wakeups), max(server, Poller::getMaxEventBatchSize));
+        server.close();
+    }
+
+    private interface Counter {
+        long get(Poller poller);
+    }
+
+    private static long sum(Server server, Counter counter) {
+        long sum = 0;
+        for (Poller poller : server.getPollers()) {
+            sum += counter.get(poller);
+        }
+        return sum;
+    }
+
+    private static long max(Server server, Counter counter) {
+        long max = 0;
+        for (Poller poller : server.getPollers()) {
+            max = Math.max(max, counter.get(poller));
+        }
+        return max;
+    }
+
+    /**
+     * 每个客户端线程在一个持久连接上依次发送 requests 个请求
+     * @return 完成的请求总数
+     */
+    private static long runClients(int port, int connections, int requests) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Thread thread = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", port)) {
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    for (int j = 0; j < requests; j++) {
+                        out.write(REQUEST);
+                        BenchmarkSupport.readResponse(in);
+                        completed.increment();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return completed.sum();
+    }
+}
@@ -0,0 +1,57 @@
+package org.webserver.connector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimingWheelTest {
+
+    @Test
+    public void expireAfterDelay() {
+        TimingWheel<String> wheel = new TimingWheel<>(8, 100, 0);
+        TimingWheel.Entry<String> entry = new TimingWheel.Entry<>("a");
+        List<String> expired = new ArrayList<>();
+        wheel.schedule(entry, 250, 0);
+        wheel.advance(200, expired::add);
+        Assert.assertTrue(expired.isEmpty());
+        wheel.advance(300, expired::add);
+        Assert.assertEquals(List.of("a"), expired);
+        Assert.assertFalse(entry.isScheduled());
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void rescheduleAndCancel() {
+        TimingWheel<String> wheel = new TimingWheel<>(8, 100, 0);
+        TimingWheel.Entry<String> a = new TimingWheel.Entry<>("a");
+        TimingWheel.Entry<String> b = new TimingWheel.Entry<>("b");
+        List<String> expired = new ArrayList<>();
+        wheel.schedule(a, 100, 0);
+        wheel.schedule(b, 100, 0);
+        // 刷新 a 的超时
+        wheel.schedule(a, 500, 50);
+        wheel.cancel(b);
+        Assert.assertEquals(1, wheel.size());
+        wheel.advance(500, expired::add);
+        Assert.assertTrue(expired.isEmpty());
+        wheel.advance(600, expired::add);
+        Assert.assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    public void delayLongerThanOneRound() {
+        TimingWheel<String> wheel = new TimingWheel<>(4, 100, 0);
+        TimingWheel.Entry<String> entry = new TimingWheel.Entry<>("a");
+        List<String> expired = new ArrayList<>();
+        wheel.schedule(entry, 1000, 0);
+        // 同一个格子要经过两圈以上才到期
+        wheel.advance(900, expired::add);
+        Assert.assertTrue(expired.isEmpty());
+        Assert.assertTrue(wheel.nextTickDelay(900) > 0);
+        wheel.advance(1000, expired::add);
+        Assert.assertEquals(List.of("a"), expired);
+        Assert.assertEquals(0, wheel.nextTickDelay(1000));
+    }
+}
@@ -0,0 +1,62 @@
+package org.webserver.container;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+/**
+ * 调用一个简单的处理方法：原来的 Method.invoke 与 HandlerInvokers 生成的调用器（LambdaMetafactory、
+ * 参数较多时使用的 MethodHandle）对比，统计每次调用的耗时和分配的内存
+ * （com.sun.management.ThreadMXBean#getThreadAllocatedBytes）。参数数组预先构造，只比较调用本身
+ *
+ * 运行：mvn test-compile 后以 target/test-classes 和 target/classes 为类路径运行 main 方法，
+ *      可选参数 [-Dbench.iterations=20000000]
+ */
+public class InvokerBenchmark {
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 20_000_000);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long sink;
+
+    public static class HelloController {
+        public String hello(String name, int count) {
+            return count > 0 ? name : null;
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        HelloController controller = new HelloController();
+        Method method = HelloController.class.getMethod("hello", String.class, int.class);
+        HandlerInvoker lambda = HandlerInvokers.create(controller, method);
+        HandlerInvoker spreader = HandlerInvokers.spreader(MethodHandles.lookup().unreflect(method).bindTo(controller));
+        Object[][] arguments = new Object[16][];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = new Object[]{"page" + i, i};
+        }
+
+        for (int round = 0; round < 3; round++) { // 前两轮预热
+            run(round, "Method.invoke", arguments, a -> method.invoke(controller, a));
+            run(round, "Lambda", arguments, lambda);
+            run(round, "MethodHandle", arguments, spreader);
+        }
+        System.out.println("sink=" + sink);
+    }
+
+    private static void run(int round, String name, Object[][] arguments, HandlerInvoker invoker) throws Throwable {
+        long thread = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            Object result = invoker.invoke(arguments[i & 15]);
+            sink += result == null ? 0 : 1;
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = THREADS.getThreadAllocatedBytes(thread) - allocated;
+        if (round == 2) {
+            System.out.printf("%-14s %8.1f B/op %8.1f ns/op%n", name,
+                    (double) allocated / ITERATIONS, (double) nanos / ITERATIONS);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.webserver.container;
+
+import org.webserver.http.HttpMethod;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 1200 条路由下的查找：原来的 HashMap（每次 indexOf、substring，同一个键查找三次）与 Router 的对比，
+ * 统计每次查找的耗时和分配的内存（com.sun.management.ThreadMXBean#getThreadAllocatedBytes）。
+ * HashMap 只支持静态路径，路径变量的查找只测 Router。
+ *
+ * 运行：mvn test-compile 后以 target/test-classes 和 target/classes 为类路径运行 main 方法，
+ *      可选参数 [-Dbench.iterations=5000000 -Dbench.resources=100]
+ */
+public class RouterBenchmark {
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5_000_000);
+    private static final int RESOURCES = Integer.getInteger("bench.resources", 100);
+
+    /** 每种资源的路由，{r} 替换为资源名 */
+    private static final String[] STATIC_ROUTES = {"/api/{r}", "/api/{r}/list", "/api/{r}/search", "/api/{r}/export",
+            "/api/{r}/import", "/api/{r}/stats", "/admin/{r}", "/admin/{r}/settings"};
+    private static final String[] VARIABLE_ROUTES = {"/api/{r}/{id}", "/api/{r}/{id}/edit",
+            "/api/{r}/{id}/history", "/api/{r}/{id}/comments/{commentId}"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        TargetMethod target = new TargetMethod(new RouterTest.Controller(),
+                RouterTest.Controller.class.getMethod("handle"), HttpMethod.ANY);
+        Router router = new Router();
+        Map<String, TargetMethod> methodMap = new HashMap<>();
+        List<String> staticUris = new ArrayList<>();
+        List<String> variableUris = new ArrayList<>();
+        for (int i = 0; i < RESOURCES; i++) {
+            String resource = "resource" + i;
+            for (String route : STATIC_ROUTES) {
+                String path = route.replace("{r}", resource);
+                router.add(path, HttpMethod.ANY, target);
+                methodMap.put(path, target);
+                staticUris.add(path + "?page=1");
+            }
+            for (String route : VARIABLE_ROUTES) {
+                router.add(route.replace("{r}", resource), HttpMethod.ANY, target);
+                variableUris.add(route.replace("{r}", resource).replace("{id}", "12345")
+                        .replace("{commentId}", "678"));
+            }
+        }
+        String[] statics = staticUris.toArray(new String[0]);
+        String[] variables = variableUris.toArray(new String[0]);
+        System.out.printf("路由数：%d%n", router.getRoutes().size());
+
+        for (int round = 0; round < 3; round++) { // 前两轮预热
+            run(round, "HashMap 静态路径", statics, uri -> {
+                int idx = uri.indexOf('?');
+                String key = uri.substring(0, idx == -1 ? uri.length() : idx);
+                if (methodMap.get(key) != null && methodMap.get(key).getHttpMethodType() != null) {
+                    sink += methodMap.get(key).hashCode();
+                }
+            });
+            run(round, "Router 静态路径", statics, uri -> sink += router.find(uri).handler(HttpMethod.GET).hashCode());
+            run(round, "Router 路径变量", variables, uri -> sink += router.find(uri).handler(HttpMethod.GET).hashCode());
+        }
+        System.out.println("sink=" + sink);
+    }
+
+    private interface Lookup {
+        void find(String uri);
+    }
+
+    private static void run(int round, String name, String[] uris, Lookup lookup) {
+        long thread = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            lookup.find(uris[i % uris.length]);
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = THREADS.getThreadAllocatedBytes(thread) - allocated;
+        if (round == 2) {
+            System.out.printf("%-16s %8.1f B/op %8.1f ns/op%n", name,
+                    (double) allocated / ITERATIONS, (double) nanos / ITERATIONS);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.webserver.container;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webserver.http.HttpMethod;
+
+import java.util.Map;
+
+public class RouterTest {
+
+    public static class Controller {
+        public String handle() {
+            return "ok";
+        }
+    }
+
+    private static TargetMethod target(HttpMethod method) throws ReflectiveOperationException {
+        return new TargetMethod(new Controller(), Controller.class.getMethod("handle"), method);
+    }
+
+    private static String find(Router router, String uri) {
+        Router.Route route = router.find(uri);
+        return route == null ? null : route.getPattern();
+    }
+
+    @Test
+    public void staticRoutes() throws ReflectiveOperationException {
+        Router router = new Router();
+        for (String pattern : new String[]{"/", "/user", "/user/list", "/users", "/user/login"}) {
+            router.add(pattern, HttpMethod.ANY, target(HttpMethod.ANY));
+        }
+        Assert.assertEquals("/", find(router, "/"));
+        Assert.assertEquals("/user", find(router, "/user"));
+        Assert.assertEquals("/users", find(router, "/users?page=2"));
+        Assert.assertEquals("/user/list", find(router, "/user/list"));
+        Assert.assertEquals("/user/login", find(router, "/user/login"));
+        Assert.assertNull(find(router, "/user/"));
+        Assert.assertNull(find(router, "/user/lis"));
+        Assert.assertNull(find(router, "/userx"));
+        Assert.assertNull(find(router, "/a.txt"));
+    }
+
+    @Test
+    public void pathVariables() throws ReflectiveOperationException {
+        Router router = new Router();
+        router.add("/user/{id}", HttpMethod.ANY, target(HttpMethod.ANY));
+        router.add("/user/new", HttpMethod.ANY, target(HttpMethod.ANY));
+        router.add("/user/{id}/posts/{postId}", HttpMethod.ANY, target(HttpMethod.ANY));
+
+        Assert.assertEquals("/user/new", find(router, "/user/new")); // 静态路径优先
+        Assert.assertEquals("/user/{id}", find(router, "/user/newer"));
+        Assert.assertEquals("/user/{id}/posts/{postId}", find(router, "/user/new/posts/7"));
+        Assert.assertNull(find(router, "/user/"));
+        Assert.assertNull(find(router, "/user/42/posts/"));
+
+        Router.Route route = router.find("/user/42/posts/7?x=1");
+        Assert.assertEquals(Map.of("id", "42", "postId", "7"), route.variables("/user/42/posts/7?x=1"));
+        Assert.assertFalse(router.find("/user/new").hasVariables());
+    }
+
+    @Test
+    public void wildcardSuffix() throws ReflectiveOperationException {
+        Router router = new Router();
+        router.add("/files/**", HttpMethod.ANY, target(HttpMethod.ANY));
+        router.add("/files/readme", HttpMethod.ANY, target(HttpMethod.ANY));
+        router.add("/api/{version}/**", HttpMethod.ANY, target(HttpMethod.ANY));
+
+        Assert.assertEquals("/files/**", find(router, "/files"));
+        Assert.assertEquals("/files/**", find(router, "/files/a/b.txt"));
+        Assert.assertEquals("/files/readme", find(router, "/files/readme"));
+        Assert.assertEquals("/files/**", find(router, "/files/readme/more"));
+        Assert.assertNull(find(router, "/filesystem"));
+        Assert.assertEquals("/api/{version}/**", find(router, "/api/v2/users/1"));
+        Assert.assertEquals(Map.of("version", "v2"), router.find("/api/v2/users/1").variables("/api/v2/users/1"));
+    }
+
+    @Test
+    public void dispatchByMethod() throws ReflectiveOperationException {
+        Router router = new Router();
+        TargetMethod get = target(HttpMethod.GET);
+        TargetMethod post = target(HttpMethod.POST);
+        router.add("/items", HttpMethod.GET, get);
+        router.add("/items", HttpMethod.POST, post);
+        router.add("/any", HttpMethod.ANY, get);
+        router.add("/any", HttpMethod.POST, post);
+
+        Router.Route items = router.find("/items");
+        Assert.assertSame(get, items.handler(HttpMethod.GET));
+        Assert.assertSame(post, items.handler(HttpMethod.POST));
+        Assert.assertNull(items.handler(HttpMethod.HEAD)); // 405
+        Assert.assertSame(get, router.find("/any").handler(HttpMethod.HEAD));
+        Assert.assertSame(post, router.find("/any").handler(HttpMethod.POST));
+        Assert.assertSame(post, router.add("/items", HttpMethod.POST, get)); // 重复映射时替换
+    }
+
+    @Test
+    public void invalidPatterns() throws ReflectiveOperationException {
+        Router router = new Router();
+        for (String pattern : new String[]{"/user/{}", "/user/{id", "/user/x{id}", "/user/{id}x", "/files/*", "/a/**/b"}) {
+            try {
+                router.add(pattern, HttpMethod.ANY, target(HttpMethod.ANY));
+                Assert.fail(pattern);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
@@ -2,26 +2,154 @@ package org.webserver.container;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.webserver.container.annotation.CookieValue;
+import org.webserver.container.annotation.PathVariable;
+import org.webserver.container.annotation.RequestHeader;
+import org.webserver.container.annotation.RequestParam;
 import org.webserver.exception.InternalServerException;
+import org.webserver.http.HttpMethod;
 import org.webserver.http.request.HttpRequest;
+import org.webserver.http.request.HttpRequestParser;
+import org.webserver.http.response.HttpResponse;
+import org.webserver.http.response.HttpStatus;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import java.util.*;
 
+public class TargetMethodTest {
+
+    @Test
+    public void buildBeanFromRequest() throws Exception {
+        HttpRequest request = new HttpRequestParser().parse(ByteBuffer.wrap(
+                "GET /login?user.id=1001&user.name=Alice&user.info.val=ok HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8)));
+        User user = (User) new BeanBinder(User.class, "user.").bind(request);
+        Assert.assertEquals("id错误", Integer.valueOf(1001), user.getId());
+        Assert.assertEquals("name错误", "Alice", user.getName());
+        Assert.assertEquals("info.val错误", "ok", user.getInfo().getVal());
 
+        // 请求中没有嵌套实体的参数时不构造
+        request = new HttpRequestParser().parse(ByteBuffer.wrap(
+                "GET /login?user.name=Bob&info.val=x HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8)));
+        user = (User) new BeanBinder(User.class, "user.").bind(request);
+        Assert.assertEquals("Bob", user.getName());
+        Assert.assertNull(user.getId());
+        Assert.assertNull(user.getInfo());
 
-public class TargetMethodTest {
+        // 不符合规范的类（属性没有 setter）
+        try {
+            new BeanBinder(NoSetter.class, "user.").bind(request);
+            Assert.fail();
+        } catch (InternalServerException expected) {
+        }
+    }
+
+    public static class NoSetter {
+        public String name;
+    }
+
+    public static class Controller {
+        public String show(@PathVariable("id") long id, HttpResponse response) throws IOException {
+            response.getWriter().write("item " + id);
+            return null;
+        }
+
+        public void fail() {
+            throw new IllegalStateException("fail");
+        }
+
+        public int many(int a, int b, int c, int d, int e) {
+            return a + b + c + d + e;
+        }
+
+        public void bind(@RequestParam(value = "size", defaultValue = "10") int size, @RequestParam("page") Integer page,
+                         @RequestParam("missing") long missing, @RequestHeader("X-Token") String token,
+                         @RequestHeader("x-count") long count, @CookieValue("a") String a,
+                         @CookieValue("missing") String missingCookie, HttpRequest request) {
+        }
+
+        public static String concat(String s, long n, char c) {
+            return s + n + c;
+        }
+    }
+
+    /** 整个响应（响应头和响应体） */
+    private static String responseText(HttpResponse response) {
+        StringBuilder sb = new StringBuilder();
+        for (ByteBuffer buffer : response.getResponseData()) {
+            sb.append(StandardCharsets.UTF_8.decode(buffer.duplicate()));
+        }
+        return sb.toString();
+    }
 
     @Test
-    public void buildBeanFromRequest() throws InternalServerException, NoSuchMethodException {
-//        HttpRequest request = new HttpRequest();
-//        Map<String, List<String>> params = new HashMap<>();
-//        params.put("user.id", Collections.singletonList("1001"));
-//        params.put("user.name", Collections.singletonList("Alice"));
-//        params.put("user.info.val", Collections.singletonList("ok"));
-//        request.setParams(params); // 临时开放权限
-//        User user = TargetMethod.buildBeanFromRequest(request, User.class, "user.");
-//        Assert.assertEquals("id错误", Integer.valueOf(1001), user.getId());
-//        Assert.assertEquals("name错误", "Alice", user.getName());
-//        Assert.assertEquals("info.val错误", "ok", user.getInfo().getVal());
+    public void invokers() throws Throwable {
+        Method concat = Controller.class.getMethod("concat", String.class, long.class, char.class);
+        Assert.assertEquals("a7b", HandlerInvokers.create(null, concat).invoke(new Object[]{"a", 7L, 'b'}));
+        // MethodHandle 可以拓宽转换
+        Assert.assertEquals("a7b", HandlerInvokers.spreader(MethodHandles.publicLookup().unreflect(concat))
+                .invoke(new Object[]{"a", 7, 'b'}));
+        Method fail = Controller.class.getMethod("fail");
+        for (HandlerInvoker invoker : new HandlerInvoker[]{HandlerInvokers.create(new Controller(), fail),
+                HandlerInvokers.spreader(MethodHandles.publicLookup().unreflect(fail).bindTo(new Controller()))}) {
+            try {
+                invoker.invoke(new Object[0]);
+                Assert.fail();
+            } catch (IllegalStateException e) { // 不包装为 InvocationTargetException
+                Assert.assertEquals("fail", e.getMessage());
+            }
+        }
+        Method many = Controller.class.getMethod("many", int.class, int.class, int.class, int.class, int.class);
+        Assert.assertEquals(15, HandlerInvokers.create(new Controller(), many).invoke(new Object[]{1, 2, 3, 4, 5}));
+        // 启动类加载器加载的类看不到 CallN 接口，使用 MethodHandle
+        Assert.assertEquals(3, HandlerInvokers.create("abc", String.class.getMethod("length")).invoke(new Object[0]));
+    }
+
+    @Test
+    public void parameterBinders() throws Exception {
+        HttpRequest request = new HttpRequestParser().parse(ByteBuffer.wrap((
+                "GET /bind?page=3 HTTP/1.1\r\n" +
+                "X-Token: abc\r\n" +
+                "X-Count: 12\r\n" +
+                "Cookie: a=b\r\n" +
+                "\r\n").getBytes(StandardCharsets.UTF_8)));
+        Parameter[] parameters = Controller.class.getMethod("bind", int.class, Integer.class, long.class,
+                String.class, long.class, String.class, String.class, HttpRequest.class).getParameters();
+        Object[] values = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            values[i] = ParameterBinders.create(parameters[i]).bind(request, null);
+        }
+        Assert.assertArrayEquals(new Object[]{10, 3, 0L, "abc", 12L, "b", "", request}, values);
+    }
+
+    @Test
+    public void invokeAndMapException() throws Throwable {
+        Controller controller = new Controller();
+        HttpRequest request = new HttpRequest();
+        request.setPathVariables(Map.of("id", "42"));
+        HttpResponse response = new HttpResponse();
+        new TargetMethod(controller, Controller.class.getMethod("show", long.class, HttpResponse.class), HttpMethod.ANY)
+                .invoke(request, response);
+        Assert.assertEquals(HttpStatus.SC_200, response.getStatus());
+        Assert.assertTrue(responseText(response).endsWith("\r\n\r\nitem 42"));
+        response.release();
+
+        TargetMethod fail = new TargetMethod(controller, Controller.class.getMethod("fail"), HttpMethod.ANY);
+        response = new HttpResponse();
+        response.getWriter().write("partial");
+        try {
+            fail.invoke(request, response);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            HandlerExceptionMapper.map(request, response, fail, e);
+        }
+        Assert.assertEquals(HttpStatus.SC_500, response.getStatus());
+        Assert.assertFalse(responseText(response).contains("partial"));
+        response.release();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package org.webserver.http.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webserver.exception.HttpRequestParseException;
+import org.webserver.http.HttpMethod;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class HttpRequestParserTest {
+
+    private static ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parseGetRequest() throws HttpRequestParseException {
+        HttpRequest request = new HttpRequestParser().parse(buffer(
+                "GET /echo?msg=%E4%BD%A0%E5%A5%BD&a=1&a=2 HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "cookie: a=b; JSESSIONID=123\r\n" +
+                "\r\n"));
+        Assert.assertNotNull(request);
+        Assert.assertEquals(HttpMethod.GET, request.getMethod());
+        Assert.assertEquals("HTTP/1.1", request.getProtocol());
+        Assert.assertEquals("你好", request.getParameter("msg"));
+        Assert.assertEquals(2, request.getParameterValues("a").size());
+        Assert.assertEquals("localhost", request.getHeader("host"));
+        Assert.assertEquals("123", request.getCookie("JSESSIONID").getValue());
+    }
+
+    @Test
+    public void resumeAcrossPartialReads() throws HttpRequestParseException {
+        String raw = "POST /login HTTP/1.1\r\n" +
+                "Content-Type: application/x-www-form-urlencoded\r\n" +
+                "Content-Length: 31\r\n" +
+                "\r\n" +
+                "user.name=admin&user.passwd=%21";
+        HttpRequestParser parser = new HttpRequestParser();
+        byte[] bytes = raw.getBytes(StandardCharsets.UTF_8);
+        HttpRequest request = null;
+        // 每次只到达一个字节
+        for (int i = 0; i < bytes.length; i++) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, i, 1);
+            request = parser.parse(buffer);
+            Assert.assertFalse(buffer.hasRemaining());
+            if (i < bytes.length - 1) {
+                Assert.assertNull(request);
+                Assert.assertTrue(parser.isParsing());
+            }
+        }
+        Assert.assertNotNull(request);
+        Assert.assertFalse(parser.isParsing());
+        Assert.assertEquals("admin", request.getParameter("user.name"));
+        Assert.assertEquals("!", request.getParameter("user.passwd"));
+    }
+
+    @Test
+    public void stopAtRequestBoundary() throws HttpRequestParseException {
+        ByteBuffer buffer = buffer(
+                "POST /a HTTP/1.1\r\nContent-Length: 3\r\n\r\nabc" +
+                "GET /b HTTP/1.1\r\n\r\n");
+        HttpRequestParser parser = new HttpRequestParser();
+        HttpRequest first = parser.parse(buffer);
+        Assert.assertEquals("/a", first.getRequestURI());
+        Assert.assertEquals("abc", new String(first.getContent(), StandardCharsets.UTF_8));
+        Assert.assertTrue(buffer.hasRemaining());
+        HttpRequest second = parser.parse(buffer);
+        Assert.assertEquals("/b", second.getRequestURI());
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test(expected = HttpRequestParseException.class)
+    public void rejectMalformedRequestLine() throws HttpRequestParseException {
+        new HttpRequestParser().parse(buffer("GARBAGE\r\n\r\n"));
+    }
+
+    @Test(expected = HttpRequestParseException.class)
+    public void rejectInvalidContentLength() throws HttpRequestParseException {
+        new HttpRequestParser().parse(buffer("POST / HTTP/1.1\r\nContent-Length: -1\r\n\r\n"));
+    }
+
+    @Test(expected = HttpRequestParseException.class)
+    public void rejectSignedContentLength() throws HttpRequestParseException {
+        new HttpRequestParser().parse(buffer("POST / HTTP/1.1\r\nContent-Length: +3\r\n\r\nabc"));
+    }
+
+    @Test(expected = HttpRequestParseException.class)
+    public void rejectConflictingContentLength() throws HttpRequestParseException {
+        new HttpRequestParser().parse(buffer("POST / HTTP/1.1\r\nContent-Length: 3\r\ncontent-length: 5\r\n\r\nabcde"));
+    }
+
+    @Test
+    public void growBodyAsDataArrives() throws HttpRequestParseException {
+        byte[] content = new byte[100_000];
+        Arrays.fill(content, (byte) 'x');
+        HttpRequestParser parser = new HttpRequestParser();
+        Assert.assertNull(parser.parse(buffer("POST / HTTP/1.1\r\nContent-Length: 100000\r\nContent-Length: 100000\r\n\r\n")));
+        HttpRequest request = null;
+        for (int i = 0; i < content.length; i += 3000) {
+            request = parser.parse(ByteBuffer.wrap(content, i, Math.min(3000, content.length - i)));
+        }
+        Assert.assertNotNull(request);
+        Assert.assertArrayEquals(content, request.getContent());
+    }
+}
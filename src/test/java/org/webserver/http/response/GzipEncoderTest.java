@@ -0,0 +1,95 @@
+package org.webserver.http.response;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webserver.constant.HttpConstant;
+import org.webserver.http.request.HttpRequest;
+import org.webserver.http.request.HttpRequestParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+public class GzipEncoderTest {
+
+    @Test
+    public void acceptEncodingNegotiation() {
+        Assert.assertTrue(GzipEncoder.acceptsGzip("gzip, deflate, br"));
+        Assert.assertTrue(GzipEncoder.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        Assert.assertTrue(GzipEncoder.acceptsGzip("x-gzip"));
+        Assert.assertTrue(GzipEncoder.acceptsGzip("*"));
+        Assert.assertFalse(GzipEncoder.acceptsGzip(null));
+        Assert.assertFalse(GzipEncoder.acceptsGzip("identity"));
+        Assert.assertFalse(GzipEncoder.acceptsGzip("gzip;q=0"));
+        Assert.assertFalse(GzipEncoder.acceptsGzip("*, gzip;q=0")); // 显式拒绝优先于 *
+        Assert.assertFalse(GzipEncoder.acceptsGzip("*;q=0"));
+    }
+
+    @Test
+    public void compressibleTypes() {
+        Assert.assertTrue(GzipEncoder.isCompressibleType("text/html; charset=utf-8"));
+        Assert.assertTrue(GzipEncoder.isCompressibleType("Application/JSON"));
+        Assert.assertFalse(GzipEncoder.isCompressibleType("image/png"));
+        Assert.assertFalse(GzipEncoder.isCompressibleType(null));
+        Assert.assertFalse(GzipEncoder.isCompressible("text/css", 10));
+        Assert.assertTrue(GzipEncoder.isCompressible("text/css", 4096));
+    }
+
+    @Test
+    public void gzipMultipleDirectBuffers() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("<li>item ").append(i).append("</li>\n");
+        }
+        byte[] content = sb.toString().getBytes(StandardCharsets.UTF_8);
+        int half = content.length / 2;
+        ByteBuffer first = ByteBuffer.allocateDirect(half).put(content, 0, half).flip();
+        ByteBuffer second = ByteBuffer.allocateDirect(content.length - half)
+                .put(content, half, content.length - half).flip();
+
+        long misses = GzipEncoder.getDeflaterPool().getMissCount();
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            GzipEncoder.gzip(new ByteBuffer[]{first, second}, out);
+            Assert.assertTrue(out.size() < content.length / 4);
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+                Assert.assertArrayEquals(content, in.readAllBytes());
+            }
+        }
+        // 输入缓冲区不变，Deflater 被复用
+        Assert.assertEquals(half, first.remaining());
+        Assert.assertTrue(GzipEncoder.getDeflaterPool().getMissCount() - misses <= 1);
+    }
+
+    @Test
+    public void appendToExistingVary() throws Exception {
+        HttpRequest request = new HttpRequestParser().parse(ByteBuffer.wrap(
+                "GET / HTTP/1.1\r\nAccept-Encoding: gzip\r\n\r\n".getBytes(StandardCharsets.US_ASCII)));
+        for (String[] vary : new String[][]{{"Cookie", "Cookie, Accept-Encoding"},
+                {"Cookie, accept-encoding", "Cookie, accept-encoding"}, {"*", "*"}}) {
+            HttpResponse response = new HttpResponse();
+            response.setContentType("text/plain");
+            response.addHeader(HttpConstant.VARY, vary[0]);
+            response.getWriter().write("x".repeat(4096));
+            GzipEncoder.encode(request, response);
+            Assert.assertEquals(vary[1], response.getHeader(HttpConstant.VARY));
+            Assert.assertEquals("gzip", response.getHeader(HttpConstant.CONTENT_ENCODING));
+            response.release();
+        }
+    }
+
+    @Test
+    public void characterEncodingIsContentTypeParameter() {
+        HttpResponse response = new HttpResponse();
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter();
+        String header = StandardCharsets.US_ASCII.decode(response.getResponseData()[0]).toString();
+        Assert.assertTrue(header.contains(HttpConstant.CONTENT_TYPE + ": text/plain; charset=UTF-8\r\n"));
+        Assert.assertFalse(header.contains(HttpConstant.CONTENT_ENCODING));
+        response.release();
+    }
+}
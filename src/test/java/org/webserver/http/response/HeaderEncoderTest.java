@@ -0,0 +1,74 @@
+package org.webserver.http.response;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webserver.buffer.BufferPool;
+import org.webserver.constant.HttpConstant;
+import org.webserver.http.Cookie;
+import org.webserver.util.HttpDateUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class HeaderEncoderTest {
+
+    private static String decimal(long value) {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        HeaderEncoder.decimal(buffer, value);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void decimals() {
+        for (long value : new long[]{0, 7, 10, 99, 1000, 65536, 5368709120L, Long.MAX_VALUE, -42, Long.MIN_VALUE}) {
+            Assert.assertEquals(String.valueOf(value), decimal(value));
+        }
+    }
+
+    @Test
+    public void dateIsRefreshedEverySecond() {
+        long now = 1_700_000_000_123L;
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        HeaderEncoder.date(buffer, now);
+        HeaderEncoder.date(buffer, now + 500);
+        HeaderEncoder.date(buffer, now + 1000);
+        String line = HttpConstant.DATE + ": " + HttpDateUtil.format(now) + "\r\n";
+        String next = HttpConstant.DATE + ": " + HttpDateUtil.format(now + 1000) + "\r\n";
+        Assert.assertEquals(line + line + next, new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void responseHeader() {
+        HttpResponse response = new HttpResponse();
+        response.setStatus(HttpStatus.SC_404);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        response.addHeader("X-Custom", "é"); // 非 ASCII 字符写为 ?
+        response.addHeader(HttpConstant.CONTENT_TYPE, "text/html");
+        response.addCookie(new Cookie(HttpConstant.JSESSIONID, "abc"));
+        String header = StandardCharsets.US_ASCII.decode(response.getResponseData()[0]).toString();
+        response.release();
+
+        Assert.assertTrue(header.startsWith("HTTP/1.1 404 File Not Found\r\nDate: "));
+        Assert.assertTrue(header.endsWith("\r\n"
+                + "Content-Type: text/html; charset=UTF-8\r\n"
+                + "X-Custom: ?\r\n"
+                + "Content-Length: 0\r\n"
+                + "Set-Cookie: JSESSIONID=abc; \r\n"
+                + "\r\n"));
+    }
+
+    /**
+     * 响应头超过最小的缓冲区时换用更大的缓冲区
+     */
+    @Test
+    public void longHeader() {
+        HttpResponse response = new HttpResponse();
+        String value = "x".repeat(3000);
+        response.addHeader("X-Long", value);
+        ByteBuffer buffer = response.buildHeader(-1);
+        String header = StandardCharsets.US_ASCII.decode(buffer).toString();
+        BufferPool.shared().release(buffer);
+        Assert.assertTrue(header.contains("X-Long: " + value + "\r\n\r\n"));
+    }
+}
@@ -0,0 +1,110 @@
+package org.webserver.http.response;
+
+import org.webserver.buffer.BufferPool;
+import org.webserver.constant.HttpConstant;
+import org.webserver.http.Cookie;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编码一个典型动态响应的响应头，对比原来的实现（StringBuilder、每次格式化 Date、遍历 HashMap、getBytes）
+ * 与 HeaderEncoder（直接写入池化的缓冲区）每个响应分配的内存和耗时。
+ * 分配的内存通过 com.sun.management.ThreadMXBean#getThreadAllocatedBytes 统计。
+ *
+ * 运行：mvn test-compile 后以 target/test-classes 和 target/classes 为类路径运行 main 方法，
+ *      可选参数 [-Dbench.iterations=2000000]
+ */
+public class HeaderEncodingBenchmark {
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 2_000_000);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** 防止编码的结果被优化掉 */
+    private static long sink;
+
+    public static void main(String[] args) {
+        HttpResponse response = newResponse();
+        Map<String, String> headers = new HashMap<>();
+        headers.put(HttpConstant.CONTENT_TYPE, "text/html; charset=utf-8");
+        headers.put(HttpConstant.VARY, HttpConstant.ACCEPT_ENCODING);
+        headers.put(HttpConstant.KEEP_ALIVE, "timeout=30, max=99");
+        List<Cookie> cookies = new ArrayList<>();
+        cookies.add(new Cookie(HttpConstant.JSESSIONID, "0123456789abcdef0123456789abcdef"));
+
+        for (int round = 0; round < 3; round++) { // 前两轮预热
+            run(round, "原实现", () -> sink += legacyHeader(HttpStatus.SC_200, headers, 1234, cookies).length);
+            run(round, "HeaderEncoder", () -> {
+                ByteBuffer header = response.buildHeader(1234);
+                sink += header.remaining();
+                BufferPool.shared().release(header);
+            });
+        }
+        System.out.println("sink=" + sink);
+    }
+
+    private static HttpResponse newResponse() {
+        HttpResponse response = new HttpResponse();
+        response.setContentType("text/html; charset=utf-8");
+        response.addHeader(HttpConstant.VARY, HttpConstant.ACCEPT_ENCODING);
+        response.addHeader(HttpConstant.KEEP_ALIVE, "timeout=30, max=99");
+        response.addCookie(new Cookie(HttpConstant.JSESSIONID, "0123456789abcdef0123456789abcdef"));
+        return response;
+    }
+
+    private static void run(int round, String name, Runnable encode) {
+        long thread = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            encode.run();
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = THREADS.getThreadAllocatedBytes(thread) - allocated;
+        if (round == 2) {
+            System.out.printf("%-14s %8.1f B/op %8.1f ns/op%n", name,
+                    (double) allocated / ITERATIONS, (double) nanos / ITERATIONS);
+        }
+    }
+
+    /**
+     * 原来的 HttpResponse#buildHeader
+     */
+    private static byte[] legacyHeader(HttpStatus status, Map<String, String> headers, long contentLength,
+                                       List<Cookie> cookies) {
+        headers.put(HttpConstant.CONTENT_LENGTH, contentLength + "");
+        StringBuilder sb = new StringBuilder();
+        sb.append(HttpConstant.PROTOCOL)
+                .append(" ")
+                .append(status.getCode())
+                .append(" ")
+                .append(status.getReason())
+                .append(HttpConstant.CRLF);
+        sb.append(HttpConstant.DATE).append(": ")
+                .append(ZonedDateTime.now(ZoneOffset.of("Z")).format(DateTimeFormatter.RFC_1123_DATE_TIME))
+                .append(HttpConstant.CRLF);
+        headers.forEach((k, v) -> sb.append(k).append(": ").append(v).append(HttpConstant.CRLF));
+        cookies.forEach(cookie -> {
+            sb.append(HttpConstant.SET_COOKIE)
+                    .append(": ")
+                    .append(cookie.getName())
+                    .append("=")
+                    .append(cookie.getValue())
+                    .append("; ");
+            if (cookie.getMaxAge() != -1)
+                sb.append("max-age=").append(cookie.getMaxAge());
+            sb.append(HttpConstant.CRLF);
+        });
+        sb.append(HttpConstant.CRLF);
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
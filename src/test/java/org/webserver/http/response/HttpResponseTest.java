@@ -0,0 +1,120 @@
+package org.webserver.http.response;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webserver.constant.HttpConstant;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HttpResponseTest {
+
+    /**
+     * 记录每次发送的数据，发送后立即释放
+     */
+    private static class RecordingChannel implements ResponseChannel {
+        final List<byte[]> sent = new ArrayList<>();
+        int commits;
+
+        @Override
+        public void beforeCommit(HttpResponse response) {
+            commits++;
+            response.addHeader(HttpConstant.CONNECTION, "close");
+        }
+
+        @Override
+        public void send(ByteBuffer[] data, Runnable releaser) {
+            sent.add(concat(data));
+            releaser.run();
+        }
+    }
+
+    private static byte[] concat(ByteBuffer[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteBuffer buffer : data) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            out.writeBytes(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码 chunked 编码的响应体，检查每块的格式和大小上限
+     */
+    private static byte[] dechunk(String chunked, int maxChunkSize) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pos = 0;
+        while (true) {
+            int eol = chunked.indexOf("\r\n", pos);
+            int size = Integer.parseInt(chunked.substring(pos, eol), 16);
+            Assert.assertTrue(size <= maxChunkSize);
+            pos = eol + 2;
+            if (size == 0) {
+                Assert.assertEquals("\r\n", chunked.substring(pos));
+                return out.toByteArray();
+            }
+            out.writeBytes(chunked.substring(pos, pos + size).getBytes(StandardCharsets.ISO_8859_1));
+            Assert.assertEquals("\r\n", chunked.substring(pos + size, pos + size + 2));
+            pos += size + 2;
+        }
+    }
+
+    @Test
+    public void smallResponseIsBuffered() throws IOException {
+        RecordingChannel channel = new RecordingChannel();
+        HttpResponse response = new HttpResponse();
+        response.setChannel(channel);
+        response.getWriter().write("hello");
+        ByteBuffer[] data = response.getResponseData();
+        String header = StandardCharsets.US_ASCII.decode(data[0]).toString();
+
+        Assert.assertTrue(channel.sent.isEmpty());
+        Assert.assertFalse(response.isCommitted());
+        Assert.assertTrue(header.contains(HttpConstant.CONTENT_LENGTH + ": 5\r\n"));
+        Assert.assertFalse(header.contains(HttpConstant.TRANSFER_ENCODING));
+        response.release();
+    }
+
+    @Test
+    public void largeResponseIsStreamedInBoundedChunks() throws IOException {
+        byte[] expected = new byte[300_000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) ('a' + i % 26);
+        }
+        RecordingChannel channel = new RecordingChannel();
+        HttpResponse response = new HttpResponse();
+        response.setChannel(channel);
+        response.setContentType("text/plain");
+        OutputStream out = response.getOutputStream();
+        out.write(expected, 0, 200_000);
+        Assert.assertTrue(response.isCommitted());
+        Assert.assertFalse(response.isContentOnly());
+        Writer writer = response.getWriter();
+        writer.write(new String(expected, 200_000, 100_000, StandardCharsets.US_ASCII));
+        writer.close();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 1; i < channel.sent.size(); i++) {
+            body.writeBytes(channel.sent.get(i));
+        }
+        body.writeBytes(concat(response.getResponseData()));
+        String header = new String(channel.sent.get(0), StandardCharsets.US_ASCII);
+
+        Assert.assertEquals(1, channel.commits);
+        Assert.assertTrue(header.startsWith("HTTP/1.1 200"));
+        Assert.assertTrue(header.endsWith("\r\n\r\n"));
+        Assert.assertTrue(header.contains(HttpConstant.TRANSFER_ENCODING + ": chunked\r\n"));
+        Assert.assertTrue(header.contains(HttpConstant.CONNECTION + ": close\r\n"));
+        Assert.assertFalse(header.contains(HttpConstant.CONTENT_LENGTH));
+        Assert.assertArrayEquals(expected, dechunk(body.toString(StandardCharsets.ISO_8859_1), 64 * 1024));
+        Assert.assertEquals(expected.length, response.getContentLength());
+        response.release();
+    }
+}
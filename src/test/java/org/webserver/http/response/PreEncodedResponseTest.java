@@ -0,0 +1,39 @@
+package org.webserver.http.response;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webserver.constant.HttpConstant;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class PreEncodedResponseTest {
+
+    @Test
+    public void encodeHeaderAndBody() {
+        PreEncodedResponse response = PreEncodedResponse.of(HttpStatus.SC_503, "busy",
+                HttpConstant.RETRY_AFTER, "1");
+        ByteBuffer data = response.duplicate();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+
+        Assert.assertTrue(text.startsWith("HTTP/1.1 503 Service Unavailable\r\n"));
+        Assert.assertTrue(text.contains("\r\nRetry-After: 1\r\n"));
+        int bodyStart = text.indexOf("\r\n\r\n") + 4;
+        String body = text.substring(bodyStart);
+        Assert.assertTrue(body.contains("busy"));
+        // 响应头只有 ASCII 字符，字符下标即字节下标
+        int bodyLength = bytes.length - bodyStart;
+        Assert.assertTrue(text.contains("Content-Length: " + bodyLength + "\r\n"));
+    }
+
+    @Test
+    public void duplicatesAreIndependent() {
+        PreEncodedResponse response = PreEncodedResponse.of(HttpStatus.SC_503, "busy");
+        ByteBuffer first = response.duplicate();
+        first.position(first.limit());
+        Assert.assertEquals(response.size(), response.duplicate().remaining());
+        Assert.assertTrue(first.isReadOnly());
+    }
+}
@@ -0,0 +1,127 @@
+package org.webserver.resource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webserver.constant.HttpConstant;
+import org.webserver.http.response.FileRegion;
+import org.webserver.http.response.HttpResponse;
+import org.webserver.http.response.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class ByteRangeTest {
+
+    private static String parse(String header, long length) {
+        List<ByteRange> ranges = ByteRange.parse(header, length);
+        return ranges == null ? null : ranges.toString();
+    }
+
+    @Test
+    public void singleRanges() {
+        Assert.assertEquals("[0-499]", parse("bytes=0-499", 1000));
+        Assert.assertEquals("[500-999]", parse("bytes=500-", 1000));
+        Assert.assertEquals("[900-999]", parse("bytes=900-5000", 1000)); // 超出部分被截断
+        Assert.assertEquals("[0-0]", parse("Bytes=0-0", 1000)); // 单位不区分大小写
+    }
+
+    @Test
+    public void suffixRanges() {
+        Assert.assertEquals("[900-999]", parse("bytes=-100", 1000));
+        Assert.assertEquals("[0-999]", parse("bytes=-5000", 1000)); // 后缀比文件长时返回整个文件
+        Assert.assertEquals("[]", parse("bytes=-0", 1000));
+        Assert.assertEquals("[]", parse("bytes=-1", 0));
+    }
+
+    @Test
+    public void overlappingRangesAreCoalesced() {
+        Assert.assertEquals("[0-199]", parse("bytes=0-99,50-199", 1000));
+        Assert.assertEquals("[0-199]", parse("bytes=100-199,0-99", 1000)); // 相邻
+        Assert.assertEquals("[0-9, 500-599, 900-999]", parse("bytes=900-,500-599,0-9,-50", 1000));
+    }
+
+    @Test
+    public void unsatisfiableAndInvalid() {
+        Assert.assertEquals("[]", parse("bytes=1000-", 1000));
+        Assert.assertEquals("[500-999]", parse("bytes=1000-,500-", 1000)); // 忽略不可满足的范围
+        Assert.assertNull(parse("items=0-1", 1000));
+        Assert.assertNull(parse("bytes=5-1", 1000));
+        Assert.assertNull(parse("bytes=a-b", 1000));
+        Assert.assertNull(parse("bytes=10", 1000));
+        Assert.assertNull(parse("bytes=0-0,2-2,4-4,6-6,8-8,10-10,12-12,14-14,16-16,18-18,"
+                + "20-20,22-22,24-24,26-26,28-28,30-30,32-32", 1000)); // 范围过多
+    }
+
+    @Test
+    public void largeOffsets() {
+        long length = 5L * 1024 * 1024 * 1024;
+        Assert.assertEquals("[4294967296-5368709119]", parse("bytes=4294967296-", length));
+        Assert.assertEquals("[5368709110-5368709119]", parse("bytes=-10", length));
+        Assert.assertEquals("[2147483647-2147483648]", parse("bytes=2147483647-2147483648", length));
+    }
+
+    /**
+     * 大于 2GB 的（稀疏）文件，多个范围的 multipart/byteranges 响应
+     */
+    @Test
+    public void multipartOverLargeFile() throws IOException {
+        Path root = Files.createTempDirectory("webapp");
+        Path file = root.resolve("large.bin");
+        long length = 3L * 1024 * 1024 * 1024;
+        long offset = (1L << 31) + 5;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(length);
+            raf.seek(offset);
+            raf.write("MIDDLE".getBytes(StandardCharsets.US_ASCII));
+            raf.seek(length - 3);
+            raf.write("END".getBytes(StandardCharsets.US_ASCII));
+        }
+        try {
+            StaticResource resource = new StaticResourceCache(root, 1 << 20, 1024, 60_000, false,
+                    name -> "application/octet-stream", name -> null).get("large.bin");
+            HttpResponse response = new HttpResponse();
+            StaticResourceHandler.partialContent(response, resource,
+                    ByteRange.parse("bytes=" + offset + "-" + (offset + 5) + ",-3", length));
+            ByteBuffer[] data = response.getResponseData();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            WritableByteChannel channel = Channels.newChannel(out);
+            for (int i = 1; i < data.length; i++) {
+                channel.write(data[i]);
+            }
+            for (FileRegion region : response.getFileRegions()) {
+                while (!region.isDone()) {
+                    region.transferTo(channel);
+                }
+            }
+            String header = StandardCharsets.US_ASCII.decode(data[0]).toString();
+            String body = out.toString(StandardCharsets.US_ASCII);
+            int idx = header.indexOf("boundary=") + 9;
+            String boundary = header.substring(idx, header.indexOf("\r\n", idx));
+
+            Assert.assertEquals(HttpStatus.SC_206, response.getStatus());
+            Assert.assertTrue(header.contains(HttpConstant.CONTENT_LENGTH + ": " + body.length() + "\r\n"));
+            Assert.assertEquals("--" + boundary + "\r\n"
+                    + "Content-Type: application/octet-stream\r\n"
+                    + "Content-Range: bytes " + offset + "-" + (offset + 5) + "/" + length + "\r\n\r\n"
+                    + "MIDDLE\r\n"
+                    + "--" + boundary + "\r\n"
+                    + "Content-Type: application/octet-stream\r\n"
+                    + "Content-Range: bytes " + (length - 3) + "-" + (length - 1) + "/" + length + "\r\n\r\n"
+                    + "END\r\n"
+                    + "--" + boundary + "--\r\n", body);
+            response.release();
+        } finally {
+            Files.delete(file);
+            Files.delete(root);
+        }
+    }
+}
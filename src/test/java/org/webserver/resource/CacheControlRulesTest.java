@@ -0,0 +1,30 @@
+package org.webserver.resource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CacheControlRulesTest {
+
+    @Test
+    public void firstMatchingRuleWins() {
+        CacheControlRules rules = CacheControlRules.parse(
+                "**.{css,js}=public, max-age=31536000; *.html=no-cache; **=max-age=60");
+        Assert.assertEquals("public, max-age=31536000", rules.apply("static/css/index.css"));
+        Assert.assertEquals("public, max-age=31536000", rules.apply("app.js"));
+        Assert.assertEquals("no-cache", rules.apply("index.html"));
+        // * 不跨目录
+        Assert.assertEquals("max-age=60", rules.apply("docs/index.html"));
+    }
+
+    @Test
+    public void emptyConfig() {
+        Assert.assertNull(CacheControlRules.parse(null).apply("index.html"));
+        Assert.assertNull(CacheControlRules.parse(" ").apply("index.html"));
+        Assert.assertNull(CacheControlRules.parse("*.css=no-store").apply("index.html"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ruleWithoutValue() {
+        CacheControlRules.parse("*.css");
+    }
+}
@@ -0,0 +1,203 @@
+package org.webserver.resource;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+public class StaticResourceCacheTest {
+    private Path root;
+
+    @Before
+    public void createRoot() throws IOException {
+        root = Files.createTempDirectory("webapp");
+    }
+
+    @After
+    public void deleteRoot() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private StaticResourceCache newCache(long maxBytes, long checkInterval) {
+        return new StaticResourceCache(root, maxBytes, 1024, checkInterval, false, name -> "text/plain",
+                name -> name.endsWith(".txt") ? "no-cache" : null);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        return new String(bytes(buffer), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void hitAfterFirstLoad() throws IOException {
+        Path file = root.resolve("a.txt");
+        Files.writeString(file, "hello");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(784111777000L));
+        StaticResourceCache cache = newCache(1 << 20, 60_000);
+
+        StaticResource resource = cache.get("a.txt");
+        Assert.assertEquals("hello", string(resource.body()));
+        String validators = "ETag: \"5-b690b434e8\"\r\n"
+                + "Last-Modified: Sun, 06 Nov 1994 08:49:37 GMT\r\n"
+                + "Cache-Control: no-cache\r\n";
+        Assert.assertEquals(validators + "Content-Type: text/plain\r\nContent-Length: 5\r\nAccept-Ranges: bytes\r\n\r\n",
+                string(resource.header()));
+        Assert.assertEquals(validators + "\r\n", string(resource.notModifiedHeader()));
+        Assert.assertSame(resource, cache.get("a.txt"));
+        Assert.assertTrue(cache.isCached("a.txt"));
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(resource.size(), cache.getBytesCached());
+        // 每次获取的缓冲区相互独立
+        Assert.assertEquals(5, resource.body().remaining());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedOverBudget() throws IOException {
+        for (String name : new String[]{"a", "b", "c"}) {
+            Files.write(root.resolve(name), new byte[100]);
+        }
+        StaticResourceCache cache = newCache(1 << 20, 60_000);
+        long entrySize = cache.get("a").size();
+        cache = newCache(entrySize * 2, 60_000);
+
+        cache.get("a");
+        cache.get("b");
+        cache.get("a"); // b 成为最久未访问的
+        cache.get("c");
+        Assert.assertEquals(2, cache.getEntryCount());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertTrue(cache.isCached("a"));
+        Assert.assertFalse(cache.isCached("b"));
+        Assert.assertTrue(cache.isCached("c"));
+        Assert.assertEquals(entrySize * 2, cache.getBytesCached());
+    }
+
+    @Test
+    public void reloadModifiedFile() throws IOException {
+        Path file = root.resolve("a.txt");
+        Files.writeString(file, "old");
+        StaticResourceCache cache = newCache(1 << 20, 0);
+
+        StaticResource first = cache.get("a.txt");
+        Assert.assertSame(first, cache.get("a.txt")); // 未修改，检查后继续使用
+
+        Files.writeString(file, "new content");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(first.lastModified.toMillis() + 10_000));
+        StaticResource second = cache.get("a.txt");
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals("new content", string(second.body()));
+        Assert.assertEquals(1, cache.getEntryCount());
+        Assert.assertEquals(second.size(), cache.getBytesCached());
+    }
+
+    @Test
+    public void conditionalValidators() throws IOException {
+        Path file = root.resolve("a.txt");
+        Files.writeString(file, "hello");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(784111777500L));
+        StaticResource resource = newCache(1 << 20, 60_000).get("a.txt");
+
+        Assert.assertTrue(resource.matchesETag(resource.etag));
+        Assert.assertTrue(resource.matchesETag("\"x\", W/" + resource.etag));
+        Assert.assertTrue(resource.matchesETag("*"));
+        Assert.assertFalse(resource.matchesETag("\"x\""));
+        // HTTP 日期精确到秒
+        Assert.assertTrue(resource.notModifiedSince(784111777000L));
+        Assert.assertTrue(resource.notModifiedSince(784111778000L));
+        Assert.assertFalse(resource.notModifiedSince(784111776000L));
+    }
+
+    @Test
+    public void cacheMissingPaths() throws IOException {
+        Files.createDirectory(root.resolve("dir"));
+        StaticResourceCache cache = newCache(1 << 20, 60_000);
+
+        Assert.assertNull(cache.get("missing.txt"));
+        Assert.assertNull(cache.get("missing.txt"));
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getNegativeHitCount());
+        Assert.assertTrue(cache.isCached("missing.txt"));
+        Assert.assertEquals(0.5, cache.getHitRatio(), 1e-9);
+
+        Assert.assertNull(cache.get("dir"));
+        Assert.assertNull(cache.get("../" + root.getFileName() + "/../outside.txt"));
+    }
+
+    @Test
+    public void getCachedWithoutFileSystem() throws IOException {
+        Files.writeString(root.resolve("a.txt"), "hello");
+        Files.write(root.resolve("big.bin"), new byte[2048]);
+        StaticResourceCache cache = newCache(1 << 20, 60_000);
+        Assert.assertNull(cache.getCached("a.txt")); // 还未加载
+
+        StaticResource resource = cache.get("a.txt");
+        Assert.assertSame(resource, cache.getCached("a.txt"));
+        Assert.assertNull(cache.get("missing.txt"));
+        Assert.assertSame(StaticResource.MISSING, cache.getCached("missing.txt"));
+        cache.get("big.bin");
+        Assert.assertNull(cache.getCached("big.bin")); // 内容需要从文件发送
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getNegativeHitCount());
+    }
+
+    @Test
+    public void gzipVariant() throws IOException {
+        Path file = root.resolve("list.txt");
+        Files.writeString(file, "line\n".repeat(1000));
+        StaticResourceCache cache = new StaticResourceCache(root, 1 << 20, 1 << 20, 0, false,
+                name -> "text/plain", name -> null);
+
+        StaticResource resource = cache.get("list.txt");
+        StaticResource gzip = resource.gzip;
+        Assert.assertNotNull(gzip);
+        Assert.assertSame(gzip, resource.select(true));
+        Assert.assertSame(resource, resource.select(false));
+        Assert.assertNotEquals(resource.etag, gzip.etag);
+        Assert.assertTrue(string(gzip.header()).contains("Content-Encoding: gzip\r\nContent-Length: " + gzip.length));
+        Assert.assertTrue(string(resource.header()).contains("Vary: Accept-Encoding\r\n"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes(gzip.body())))) {
+            Assert.assertEquals("line\n".repeat(1000), new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+        }
+        Assert.assertEquals(resource.size(), cache.getBytesCached());
+
+        // 不早于原文件的 .gz 文件优先
+        Path gz = root.resolve("list.txt.gz");
+        Files.write(gz, new byte[]{1, 2, 3});
+        Files.setLastModifiedTime(file, FileTime.fromMillis(resource.lastModified.toMillis() + 10_000));
+        Files.setLastModifiedTime(gz, FileTime.fromMillis(resource.lastModified.toMillis() + 20_000));
+        Assert.assertEquals(3, cache.get("list.txt").gzip.length);
+        // 过期的 .gz 文件被忽略
+        Files.setLastModifiedTime(file, FileTime.fromMillis(resource.lastModified.toMillis() + 30_000));
+        Assert.assertEquals(gzip.length, cache.get("list.txt").gzip.length);
+    }
+
+    @Test
+    public void largeFileWithoutBody() throws IOException {
+        Files.write(root.resolve("big.bin"), new byte[2048]);
+        StaticResourceCache cache = newCache(1 << 20, 60_000);
+
+        StaticResource resource = cache.get("big.bin");
+        Assert.assertFalse(resource.hasBody());
+        Assert.assertEquals(2048, resource.length);
+        Assert.assertFalse(cache.isCached("big.bin")); // 内容需要从文件发送
+    }
+}
@@ -0,0 +1,138 @@
+package org.webserver.template;
+
+import org.webserver.http.request.HttpRequest;
+import org.webserver.util.StringUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 渲染一个约 5KB、41 个占位符的页面：原来的实现（每次读取文件、正则匹配、反射调用 getter、StringBuilder、
+ * OutputStreamWriter）与编译后缓存的模板对比，统计每次渲染的耗时和分配的内存
+ * （com.sun.management.ThreadMXBean#getThreadAllocatedBytes）。两者写入同一个复用的 ByteArrayOutputStream。
+ * 原来的正则在一行有两个占位符时出错，页面中每行只有一个占位符；编译后的模板对值做 HTML 转义，页面中的值不含需要转义的字符
+ *
+ * 运行：mvn test-compile 后以 target/test-classes 和 target/classes 为类路径运行 main 方法，
+ *      可选参数 [-Dbench.iterations=200000]
+ */
+public class TemplateRenderBenchmark {
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 200_000);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final Pattern holderPattern = Pattern.compile("\\$\\{(.*)}");
+
+    private static long sink;
+
+    public static class Item {
+        private final String name;
+        private final Item parent;
+
+        Item(String name, Item parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Item getParent() {
+            return parent;
+        }
+    }
+
+    private interface Render {
+        void render() throws Throwable;
+    }
+
+    public static void main(String[] args) throws Throwable {
+        StringBuilder page = new StringBuilder("<html><head><title>${request.title}</title></head><body>\n<ul>\n");
+        for (int i = 0; i < 40; i++) {
+            page.append("  <li class=\"item\">第 ").append(i).append(" 项：${request.item")
+                    .append(i % 4).append(i % 2 == 0 ? ".name" : ".parent.name").append("}</li>\n")
+                    .append("  <li class=\"note\">lorem ipsum dolor sit amet, consectetur adipiscing elit</li>\n");
+        }
+        page.append("</ul>\n</body></html>\n");
+        Path file = Files.createTempFile("bench", ".html");
+        Files.writeString(file, page);
+
+        HttpRequest request = new HttpRequest();
+        request.setAttribute("title", "模板渲染");
+        for (int i = 0; i < 4; i++) {
+            request.setAttribute("item" + i, new Item("item" + i, new Item("parent" + i, null)));
+        }
+        TemplateCache cache = new TemplateCache();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+
+        legacyParse(request, out, file);
+        byte[] expected = out.toByteArray();
+        out.reset();
+        cache.get(file).render(request, out);
+        if (!Arrays.equals(expected, out.toByteArray())) {
+            throw new IllegalStateException("渲染结果不同");
+        }
+        System.out.printf("页面大小：%d 字节%n", expected.length);
+
+        try {
+            for (int round = 0; round < 3; round++) { // 前两轮预热
+                run(round, "原实现", out, () -> legacyParse(request, out, file));
+                run(round, "编译后的模板", out, () -> cache.get(file).render(request, out));
+            }
+        } finally {
+            Files.delete(file);
+        }
+        System.out.println("sink=" + sink);
+    }
+
+    private static void run(int round, String name, ByteArrayOutputStream out, Render render) throws Throwable {
+        long thread = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            out.reset();
+            render.render();
+            sink += out.size();
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = THREADS.getThreadAllocatedBytes(thread) - allocated;
+        if (round == 2) {
+            System.out.printf("%-10s %10.1f B/op %10.1f ns/op%n", name,
+                    (double) allocated / ITERATIONS, (double) nanos / ITERATIONS);
+        }
+    }
+
+    /**
+     * 原来的 TemplateParser#parse
+     */
+    private static void legacyParse(HttpRequest request, ByteArrayOutputStream out, Path path) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        String content = Files.readString(path);
+        Matcher matcher = holderPattern.matcher(content);
+        while (matcher.find()) {
+            String holder = matcher.group(1);
+            int firstDotPos = holder.indexOf('.');
+            String[] keys = holder.substring(firstDotPos + 1).split("\\.");
+            Object value = request.getAttribute(keys[0]);
+            for (int i = 1; i < keys.length; i++) {
+                Method getter = value.getClass().getMethod(StringUtil.getterName(keys[i]));
+                value = getter.invoke(value);
+            }
+            matcher.appendReplacement(sb, value == null ? "" : value.toString());
+        }
+        matcher.appendTail(sb);
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write(sb.toString());
+        writer.flush();
+    }
+}
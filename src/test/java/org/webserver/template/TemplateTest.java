@@ -0,0 +1,109 @@
+package org.webserver.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webserver.exception.TemplateParseException;
+import org.webserver.http.request.HttpRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class TemplateTest {
+
+    public static class User {
+        private final String name;
+        private final User friend;
+
+        public User(String name, User friend) {
+            this.name = name;
+            this.friend = friend;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public User getFriend() {
+            return friend;
+        }
+    }
+
+    private static String render(Template template, HttpRequest request) throws IOException, TemplateParseException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        template.render(request, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void placeholders() throws Throwable {
+        HttpRequest request = new HttpRequest();
+        request.setAttribute("user", new User("张三", new User("Bob", null)));
+        request.setAttribute("price", "$5 \\ each");
+        Template template = Template.compile("t.html",
+                "<p>${request.user.name} 和 ${request.user.friend.name}</p>\n${request.price}${request.missing}|${unclosed");
+        Assert.assertEquals("<p>张三 和 Bob</p>\n$5 \\ each|${unclosed", render(template, request));
+
+        // 属性的类型变化时重新查找 getter
+        request.setAttribute("user", "text");
+        try {
+            render(template, request);
+            Assert.fail();
+        } catch (TemplateParseException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("java.lang.String"));
+        }
+        request.setAttribute("user", new User("李四", new User("Carol", null)));
+        Assert.assertTrue(render(template, request).startsWith("<p>李四 和 Carol</p>"));
+    }
+
+    @Test
+    public void escapeValues() throws Throwable {
+        HttpRequest request = new HttpRequest();
+        request.setAttribute("html", "<a href=\"x?a=1&b='2'\">é中😀</a>\ud800!");
+        request.setAttribute("number", 42);
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longValue.append("中&");
+        }
+        request.setAttribute("long", longValue);
+        Template template = Template.compile("t.html", "<p>${request.html}</p>${request.number}|${request.long}");
+        Assert.assertEquals("<p>&lt;a href=&quot;x?a=1&amp;b=&#39;2&#39;&quot;&gt;é中😀&lt;/a&gt;?!</p>42|"
+                + longValue.toString().replace("&", "&amp;"), render(template, request));
+    }
+
+    @Test
+    public void invalidPlaceholders() {
+        for (String source : new String[]{"${user}", "a ${request.user.} b", "${.user}"}) {
+            try {
+                Template.compile("t.html", source);
+                Assert.fail(source);
+            } catch (TemplateParseException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void recompileWhenModified() throws Throwable {
+        Path file = Files.createTempFile("template", ".html");
+        try {
+            TemplateCache cache = new TemplateCache();
+            HttpRequest request = new HttpRequest();
+            request.setAttribute("v", 1);
+            Files.writeString(file, "a${request.v}");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000));
+            Template template = cache.get(file);
+            Assert.assertSame(template, cache.get(file));
+            Assert.assertEquals("a1", render(template, request));
+
+            Files.writeString(file, "b${request.v}");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000));
+            Assert.assertEquals("b1", render(cache.get(file), request));
+            Assert.assertEquals(1, cache.size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}